@@ -2,8 +2,10 @@ package com.matey;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class MateyApplication {
     public static void main(String[] args) {
         SpringApplication.run(MateyApplication.class, args);
@@ -0,0 +1,64 @@
+package com.matey.chess;
+
+/**
+ * Moves are plain ints so that move lists are primitive arrays.
+ *
+ * <pre>
+ * bits  0-5   from square
+ * bits  6-11  to square
+ * bits 12-15  promotion piece type + 1 (0 = no promotion)
+ * bits 16-17  flag (NORMAL, CASTLING, EN_PASSANT)
+ * </pre>
+ *
+ * The low 16 bits identify a move uniquely within a position, so they are what
+ * gets stored; the flag is recovered by matching against the legal moves.
+ */
+public final class Move {
+    public static final int NONE = 0;
+
+    public static final int NORMAL = 0;
+    public static final int CASTLING = 1;
+    public static final int EN_PASSANT = 2;
+
+    private Move() {
+    }
+
+    public static int of(int from, int to) {
+        return from | (to << 6);
+    }
+
+    public static int of(int from, int to, int flag) {
+        return from | (to << 6) | (flag << 16);
+    }
+
+    public static int promotion(int from, int to, int promotionType) {
+        return from | (to << 6) | ((promotionType + 1) << 12);
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    // Piece type promoted to, or Piece.NONE
+    public static int promotionType(int move) {
+        return ((move >>> 12) & 0xF) - 1;
+    }
+
+    public static int flag(int move) {
+        return (move >>> 16) & 0x3;
+    }
+
+    public static int packed(int move) {
+        return move & 0xFFFF;
+    }
+
+    public static String toUci(int move) {
+        String uci = Square.name(from(move)) + Square.name(to(move));
+        int promotion = promotionType(move);
+        return promotion == Piece.NONE ? uci : uci + "nbrq".charAt(promotion - Piece.KNIGHT);
+    }
+}
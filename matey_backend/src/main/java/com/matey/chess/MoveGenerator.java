@@ -0,0 +1,202 @@
+package com.matey.chess;
+
+/**
+ * Legal move generation into caller-supplied int buffers. Pseudo-legal moves
+ * are generated from the attack tables and filtered with make / king attack
+ * test / unmake, so nothing is allocated per call.
+ */
+public final class MoveGenerator {
+    // No legal position has more than 218 moves
+    public static final int MAX_MOVES = 256;
+
+    private static final int E1 = 4;
+    private static final int E8 = 60;
+
+    private MoveGenerator() {
+    }
+
+    /**
+     * Fills {@code moves} with every legal move and returns how many were written.
+     */
+    public static int generateLegal(Position position, int[] moves) {
+        int count = generatePseudoLegal(position, moves);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            if (isLegal(position, moves[i])) {
+                moves[legal++] = moves[i];
+            }
+        }
+        return legal;
+    }
+
+    /**
+     * Returns the legal move from {@code from} to {@code to}, or {@link Move#NONE}.
+     * {@code promotionType} is only consulted for promotions and defaults to a queen.
+     */
+    public static int findLegalMove(Position position, int[] buffer, int from, int to, int promotionType) {
+        int wantedPromotion = promotionType == Piece.NONE ? Piece.QUEEN : promotionType;
+        int count = generatePseudoLegal(position, buffer);
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            if (Move.from(move) != from || Move.to(move) != to) {
+                continue;
+            }
+            int promotion = Move.promotionType(move);
+            if (promotion != Piece.NONE && promotion != wantedPromotion) {
+                continue;
+            }
+            return isLegal(position, move) ? move : Move.NONE;
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Whether the side to move has any legal move. Stops at the first one found,
+     * so in normal positions this costs a single make / unmake.
+     */
+    public static boolean hasLegalMove(Position position, int[] buffer) {
+        // Walk backwards so king moves, generated last, are tried first; under check they are the likeliest escape
+        int count = generatePseudoLegal(position, buffer);
+        for (int i = count - 1; i >= 0; i--) {
+            if (isLegal(position, buffer[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isLegal(Position position, int move) {
+        int us = position.sideToMove;
+        position.makeMove(move);
+        boolean legal = !position.isSquareAttacked(position.kingSquare(us), us ^ 1);
+        position.unmakeMove(move);
+        return legal;
+    }
+
+    static int generatePseudoLegal(Position position, int[] moves) {
+        int us = position.sideToMove;
+        int them = us ^ 1;
+        long own = position.colors[us];
+        long enemy = position.colors[them];
+        long occupied = position.occupied;
+        long targets = ~own;
+        int count = generatePawnMoves(position, moves, 0, us, enemy, occupied);
+
+        long knights = position.pieces[Piece.make(us, Piece.KNIGHT)];
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            count = addMoves(moves, count, from, Attacks.knight(from) & targets);
+        }
+
+        long diagonal = position.pieces[Piece.make(us, Piece.BISHOP)] | position.pieces[Piece.make(us, Piece.QUEEN)];
+        while (diagonal != 0) {
+            int from = Long.numberOfTrailingZeros(diagonal);
+            diagonal &= diagonal - 1;
+            count = addMoves(moves, count, from, Attacks.bishop(from, occupied) & targets);
+        }
+
+        long orthogonal = position.pieces[Piece.make(us, Piece.ROOK)] | position.pieces[Piece.make(us, Piece.QUEEN)];
+        while (orthogonal != 0) {
+            int from = Long.numberOfTrailingZeros(orthogonal);
+            orthogonal &= orthogonal - 1;
+            count = addMoves(moves, count, from, Attacks.rook(from, occupied) & targets);
+        }
+
+        int king = position.kingSquare(us);
+        count = addMoves(moves, count, king, Attacks.king(king) & targets);
+        return generateCastling(position, moves, count, us, king, occupied);
+    }
+
+    private static int generatePawnMoves(Position position, int[] moves, int count, int us, long enemy, long occupied) {
+        long pawns = position.pieces[Piece.make(us, Piece.PAWN)];
+        long empty = ~occupied;
+        int forward = us == Piece.WHITE ? 8 : -8;
+        long promotionRank = us == Piece.WHITE ? Attacks.RANK_8 : Attacks.RANK_1;
+        long doublePushRank = us == Piece.WHITE ? 0xFF000000L : 0xFF00000000L;
+
+        long single = (us == Piece.WHITE ? pawns << 8 : pawns >>> 8) & empty;
+        long twice = (us == Piece.WHITE ? single << 8 : single >>> 8) & empty & doublePushRank;
+
+        long pushes = single & ~promotionRank;
+        while (pushes != 0) {
+            int to = Long.numberOfTrailingZeros(pushes);
+            pushes &= pushes - 1;
+            moves[count++] = Move.of(to - forward, to);
+        }
+        long promotions = single & promotionRank;
+        while (promotions != 0) {
+            int to = Long.numberOfTrailingZeros(promotions);
+            promotions &= promotions - 1;
+            count = addPromotions(moves, count, to - forward, to);
+        }
+        while (twice != 0) {
+            int to = Long.numberOfTrailingZeros(twice);
+            twice &= twice - 1;
+            moves[count++] = Move.of(to - 2 * forward, to);
+        }
+
+        long capturers = pawns;
+        while (capturers != 0) {
+            int from = Long.numberOfTrailingZeros(capturers);
+            capturers &= capturers - 1;
+            long attacks = Attacks.pawn(us, from);
+            long captures = attacks & enemy;
+            while (captures != 0) {
+                int to = Long.numberOfTrailingZeros(captures);
+                captures &= captures - 1;
+                if (((1L << to) & promotionRank) != 0) {
+                    count = addPromotions(moves, count, from, to);
+                } else {
+                    moves[count++] = Move.of(from, to);
+                }
+            }
+            int ep = position.epSquare;
+            if (ep != Square.NONE && (attacks & (1L << ep)) != 0) {
+                moves[count++] = Move.of(from, ep, Move.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    private static int generateCastling(Position position, int[] moves, int count, int us, int king, long occupied) {
+        int rights = position.castlingRights;
+        int them = us ^ 1;
+        int kingside = us == Piece.WHITE ? Position.WHITE_KINGSIDE : Position.BLACK_KINGSIDE;
+        int queenside = us == Piece.WHITE ? Position.WHITE_QUEENSIDE : Position.BLACK_QUEENSIDE;
+        if ((rights & (kingside | queenside)) == 0 || king != (us == Piece.WHITE ? E1 : E8)
+                || position.isSquareAttacked(king, them)) {
+            return count;
+        }
+
+        // The king may not pass through an attacked square; the destination itself is checked by isLegal
+        long rooks = position.pieces[Piece.make(us, Piece.ROOK)];
+        if ((rights & kingside) != 0 && (rooks & (1L << (king + 3))) != 0
+                && (occupied & ((1L << (king + 1)) | (1L << (king + 2)))) == 0
+                && !position.isSquareAttacked(king + 1, them)) {
+            moves[count++] = Move.of(king, king + 2, Move.CASTLING);
+        }
+        if ((rights & queenside) != 0 && (rooks & (1L << (king - 4))) != 0
+                && (occupied & ((1L << (king - 1)) | (1L << (king - 2)) | (1L << (king - 3)))) == 0
+                && !position.isSquareAttacked(king - 1, them)) {
+            moves[count++] = Move.of(king, king - 2, Move.CASTLING);
+        }
+        return count;
+    }
+
+    private static int addMoves(int[] moves, int count, int from, long targets) {
+        while (targets != 0) {
+            moves[count++] = Move.of(from, Long.numberOfTrailingZeros(targets));
+            targets &= targets - 1;
+        }
+        return count;
+    }
+
+    private static int addPromotions(int[] moves, int count, int from, int to) {
+        moves[count++] = Move.promotion(from, to, Piece.QUEEN);
+        moves[count++] = Move.promotion(from, to, Piece.ROOK);
+        moves[count++] = Move.promotion(from, to, Piece.BISHOP);
+        moves[count++] = Move.promotion(from, to, Piece.KNIGHT);
+        return count;
+    }
+}
@@ -0,0 +1,74 @@
+package com.matey.chess;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The moves of a game as packed 16-bit moves (see {@link Move#packed}), two
+ * big-endian bytes each, which is also how they are stored: a 100-ply game
+ * takes 200 bytes. A decoded list wraps the stored bytes and reads each move
+ * only when asked for it, so nothing is allocated per move.
+ */
+public final class MoveList {
+    private byte[] data;
+    private int size;
+
+    public MoveList() {
+        this(new byte[128], 0);
+    }
+
+    private MoveList(byte[] data, int size) {
+        this.data = data;
+        this.size = size;
+    }
+
+    // Shares the array; it is copied before the first move is added
+    public static MoveList decode(byte[] bytes) {
+        if (bytes == null) {
+            return new MoveList();
+        }
+        if (bytes.length % 2 != 0) {
+            throw new IllegalArgumentException("Move list has an odd number of bytes");
+        }
+        return new MoveList(bytes, bytes.length / 2);
+    }
+
+    public byte[] encode() {
+        return Arrays.copyOf(data, size * 2);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Packed move without its flag
+    public int get(int index) {
+        Objects.checkIndex(index, size);
+        return ((data[index * 2] & 0xFF) << 8) | (data[index * 2 + 1] & 0xFF);
+    }
+
+    public void add(int move) {
+        if (size * 2 == data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, 128));
+        }
+        int packed = Move.packed(move);
+        data[size * 2] = (byte) (packed >>> 8);
+        data[size * 2 + 1] = (byte) packed;
+        size++;
+    }
+
+    // Plays the moves on the position, matching each against the legal moves to recover its flag;
+    // returns how many were played, stopping at the first one that is not legal
+    public int replay(Position position, int[] moveBuffer) {
+        for (int i = 0; i < size; i++) {
+            int packed = get(i);
+            int move = MoveGenerator.findLegalMove(position, moveBuffer,
+                Move.from(packed), Move.to(packed), Move.promotionType(packed));
+            if (move == Move.NONE) {
+                return i;
+            }
+            position.makeMove(move);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,58 @@
+package com.matey.chess;
+
+/**
+ * Piece and color constants. A piece code is {@code color * 6 + type}, which
+ * doubles as the index into {@link Position}'s per-piece bitboards.
+ */
+public final class Piece {
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final int NONE = -1;
+
+    private static final String FEN_CHARS = "PNBRQKpnbrqk";
+
+    private Piece() {
+    }
+
+    public static int make(int color, int type) {
+        return color * 6 + type;
+    }
+
+    public static int color(int piece) {
+        return piece < 6 ? WHITE : BLACK;
+    }
+
+    public static int type(int piece) {
+        return piece < 6 ? piece : piece - 6;
+    }
+
+    public static int fromFenChar(char c) {
+        return FEN_CHARS.indexOf(c);
+    }
+
+    public static char toFenChar(int piece) {
+        return FEN_CHARS.charAt(piece);
+    }
+
+    // Accepts "q", "Q", "queen" etc. as sent by the client; returns NONE for anything else
+    public static int promotionType(String promotion) {
+        if (promotion == null || promotion.isEmpty()) {
+            return NONE;
+        }
+        switch (Character.toLowerCase(promotion.charAt(0))) {
+            case 'n': return KNIGHT;
+            case 'b': return BISHOP;
+            case 'r': return ROOK;
+            case 'q': return QUEEN;
+            default: return NONE;
+        }
+    }
+}
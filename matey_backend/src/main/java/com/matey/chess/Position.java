@@ -0,0 +1,434 @@
+package com.matey.chess;
+
+import java.util.Arrays;
+
+/**
+ * Mutable bitboard position with make/unmake.
+ *
+ * A position keeps its own undo stack, so {@link #makeMove} and {@link #unmakeMove}
+ * allocate nothing once the stack is large enough for the game. It is not
+ * thread safe; callers own a position per game.
+ */
+public final class Position {
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    private static final int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, 0xF);
+        CASTLING_MASK[Square.of(0, 0)] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[Square.of(7, 0)] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[Square.of(4, 0)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[Square.of(0, 7)] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASK[Square.of(7, 7)] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[Square.of(4, 7)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+    }
+
+    final long[] pieces = new long[12];
+    final long[] colors = new long[2];
+    long occupied;
+    private final byte[] board = new byte[64];
+    private final int[] pieceCounts = new int[12];
+
+    int sideToMove;
+    int castlingRights;
+    int epSquare = Square.NONE;
+    int halfmoveClock;
+    int fullmoveNumber = 1;
+    long key;
+    int repetitions = 1;
+
+    // Per ply: captured piece, castling rights, en passant square and halfmove clock of the previous state
+    private long[] undo = new long[256];
+    // Per ply: Zobrist key and repetition count of the previous state, for repetition lookups and unmake
+    private long[] keyHistory = new long[256];
+    private int[] repetitionHistory = new int[256];
+    private int undoSize;
+
+    private Position() {
+        Arrays.fill(board, (byte) Piece.NONE);
+    }
+
+    public static Position startingPosition() {
+        return fromFen(START_FEN);
+    }
+
+    public static Position fromFen(String fen) {
+        if (fen == null) {
+            throw new IllegalArgumentException("FEN must not be null");
+        }
+        String[] parts = fen.trim().split("\\s+");
+        if (parts.length < 4) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+
+        Position position = new Position();
+        int rank = 7;
+        int file = 0;
+        for (int i = 0; i < parts[0].length(); i++) {
+            char c = parts[0].charAt(i);
+            if (c == '/') {
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+            } else {
+                int piece = Piece.fromFenChar(c);
+                if (piece < 0 || file > 7 || rank < 0) {
+                    throw new IllegalArgumentException("Invalid FEN: " + fen);
+                }
+                position.addPiece(Square.of(file, rank), piece);
+                file++;
+            }
+        }
+        if (Long.bitCount(position.pieces[Piece.make(Piece.WHITE, Piece.KING)]) != 1
+                || Long.bitCount(position.pieces[Piece.make(Piece.BLACK, Piece.KING)]) != 1) {
+            throw new IllegalArgumentException("Invalid FEN, each side needs exactly one king: " + fen);
+        }
+
+        position.sideToMove = parts[1].equals("b") ? Piece.BLACK : Piece.WHITE;
+
+        for (char c : parts[2].toCharArray()) {
+            switch (c) {
+                case 'K': position.castlingRights |= WHITE_KINGSIDE; break;
+                case 'Q': position.castlingRights |= WHITE_QUEENSIDE; break;
+                case 'k': position.castlingRights |= BLACK_KINGSIDE; break;
+                case 'q': position.castlingRights |= BLACK_QUEENSIDE; break;
+                default: break;
+            }
+        }
+
+        if (!parts[3].equals("-")) {
+            int ep = Square.parse(parts[3]);
+            // Only keep the square if a pawn can actually take there, so equal positions compare equal
+            if ((Attacks.pawn(position.sideToMove ^ 1, ep)
+                    & position.pieces[Piece.make(position.sideToMove, Piece.PAWN)]) != 0) {
+                position.epSquare = ep;
+            }
+        }
+
+        try {
+            position.halfmoveClock = parts.length > 4 ? Integer.parseInt(parts[4]) : 0;
+            position.fullmoveNumber = parts.length > 5 ? Integer.parseInt(parts[5]) : 1;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+        position.key ^= Zobrist.CASTLING[position.castlingRights];
+        if (position.epSquare != Square.NONE) {
+            position.key ^= Zobrist.EN_PASSANT_FILE[Square.file(position.epSquare)];
+        }
+        if (position.sideToMove == Piece.BLACK) {
+            position.key ^= Zobrist.BLACK_TO_MOVE;
+        }
+        return position;
+    }
+
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int piece = board[Square.of(file, rank)];
+                if (piece == Piece.NONE) {
+                    empty++;
+                } else {
+                    if (empty > 0) {
+                        fen.append(empty);
+                        empty = 0;
+                    }
+                    fen.append(Piece.toFenChar(piece));
+                }
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (rank > 0) {
+                fen.append('/');
+            }
+        }
+
+        fen.append(sideToMove == Piece.WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            fen.append('-');
+        } else {
+            if ((castlingRights & WHITE_KINGSIDE) != 0) fen.append('K');
+            if ((castlingRights & WHITE_QUEENSIDE) != 0) fen.append('Q');
+            if ((castlingRights & BLACK_KINGSIDE) != 0) fen.append('k');
+            if ((castlingRights & BLACK_QUEENSIDE) != 0) fen.append('q');
+        }
+        fen.append(' ').append(epSquare == Square.NONE ? "-" : Square.name(epSquare));
+        fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return fen.toString();
+    }
+
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    public int castlingRights() {
+        return castlingRights;
+    }
+
+    public int epSquare() {
+        return epSquare;
+    }
+
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int fullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public long key() {
+        return key;
+    }
+
+    // How often the current position has occurred since the last capture or pawn move, itself included
+    public int repetitions() {
+        return repetitions;
+    }
+
+    public int pieceCount(int color, int type) {
+        return pieceCounts[Piece.make(color, type)];
+    }
+
+    public int pieceAt(int square) {
+        return board[square];
+    }
+
+    public long pieces(int color, int type) {
+        return pieces[Piece.make(color, type)];
+    }
+
+    public long pieces(int color) {
+        return colors[color];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    public int kingSquare(int color) {
+        return Long.numberOfTrailingZeros(pieces[Piece.make(color, Piece.KING)]);
+    }
+
+    public boolean isSquareAttacked(int square, int byColor) {
+        return isSquareAttacked(square, byColor, occupied);
+    }
+
+    boolean isSquareAttacked(int square, int byColor, long occupancy) {
+        int offset = byColor * 6;
+        if ((Attacks.PAWN[byColor ^ 1][square] & pieces[offset + Piece.PAWN]) != 0) return true;
+        if ((Attacks.KNIGHT[square] & pieces[offset + Piece.KNIGHT]) != 0) return true;
+        if ((Attacks.KING[square] & pieces[offset + Piece.KING]) != 0) return true;
+        long queens = pieces[offset + Piece.QUEEN];
+        if ((Attacks.bishop(square, occupancy) & (pieces[offset + Piece.BISHOP] | queens)) != 0) return true;
+        return (Attacks.rook(square, occupancy) & (pieces[offset + Piece.ROOK] | queens)) != 0;
+    }
+
+    public boolean isInCheck() {
+        return isSquareAttacked(kingSquare(sideToMove), sideToMove ^ 1);
+    }
+
+    /**
+     * Whether neither side can possibly mate: bare kings, a single minor piece,
+     * or only bishops that all stand on squares of one color.
+     */
+    public boolean isInsufficientMaterial() {
+        int white = Piece.make(Piece.WHITE, 0);
+        int black = Piece.make(Piece.BLACK, 0);
+        if (pieceCounts[white + Piece.PAWN] + pieceCounts[black + Piece.PAWN]
+                + pieceCounts[white + Piece.ROOK] + pieceCounts[black + Piece.ROOK]
+                + pieceCounts[white + Piece.QUEEN] + pieceCounts[black + Piece.QUEEN] > 0) {
+            return false;
+        }
+        int knights = pieceCounts[white + Piece.KNIGHT] + pieceCounts[black + Piece.KNIGHT];
+        int bishops = pieceCounts[white + Piece.BISHOP] + pieceCounts[black + Piece.BISHOP];
+        if (knights + bishops <= 1) {
+            return true;
+        }
+        if (knights > 0) {
+            return false;
+        }
+        long allBishops = pieces[white + Piece.BISHOP] | pieces[black + Piece.BISHOP];
+        return (allBishops & Attacks.LIGHT_SQUARES) == 0 || (allBishops & ~Attacks.LIGHT_SQUARES) == 0;
+    }
+
+    public boolean isThreefoldRepetition() {
+        return repetitions >= 3;
+    }
+
+    public boolean isFivefoldRepetition() {
+        return repetitions >= 5;
+    }
+
+    // Fifty moves by each side without a capture or pawn move; a draw a player may claim
+    public boolean isFiftyMoveRule() {
+        return halfmoveClock >= 100;
+    }
+
+    // Seventy-five moves by each side; the game is drawn without a claim
+    public boolean isSeventyFiveMoveRule() {
+        return halfmoveClock >= 150;
+    }
+
+    /**
+     * Applies a move produced by {@link MoveGenerator}. No legality checks are
+     * done here; pass only generated moves.
+     */
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        int us = sideToMove;
+        int them = us ^ 1;
+        int piece = board[from];
+        int captureSquare = flag == Move.EN_PASSANT ? to ^ 8 : to;
+        int captured = board[captureSquare];
+
+        if (undoSize == undo.length) {
+            undo = Arrays.copyOf(undo, undoSize * 2);
+            keyHistory = Arrays.copyOf(keyHistory, undoSize * 2);
+            repetitionHistory = Arrays.copyOf(repetitionHistory, undoSize * 2);
+        }
+        keyHistory[undoSize] = key;
+        repetitionHistory[undoSize] = repetitions;
+        undo[undoSize++] = (captured + 1L)
+                | ((long) castlingRights << 4)
+                | ((long) (epSquare + 1) << 8)
+                | ((long) halfmoveClock << 16);
+
+        key ^= Zobrist.CASTLING[castlingRights];
+        if (epSquare != Square.NONE) {
+            key ^= Zobrist.EN_PASSANT_FILE[Square.file(epSquare)];
+        }
+        epSquare = Square.NONE;
+        halfmoveClock++;
+
+        if (captured != Piece.NONE) {
+            removePiece(captureSquare, captured);
+            halfmoveClock = 0;
+        }
+        movePiece(from, to, piece);
+
+        if (Piece.type(piece) == Piece.PAWN) {
+            halfmoveClock = 0;
+            int promotion = Move.promotionType(move);
+            if (promotion != Piece.NONE) {
+                removePiece(to, piece);
+                addPiece(to, Piece.make(us, promotion));
+            } else if ((from ^ to) == 16) {
+                int ep = (from + to) >>> 1;
+                if ((Attacks.PAWN[us][ep] & pieces[Piece.make(them, Piece.PAWN)]) != 0) {
+                    epSquare = ep;
+                    key ^= Zobrist.EN_PASSANT_FILE[Square.file(ep)];
+                }
+            }
+        } else if (flag == Move.CASTLING) {
+            int rook = Piece.make(us, Piece.ROOK);
+            if (to > from) {
+                movePiece(to + 1, to - 1, rook);
+            } else {
+                movePiece(to - 2, to + 1, rook);
+            }
+        }
+
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        key ^= Zobrist.CASTLING[castlingRights] ^ Zobrist.BLACK_TO_MOVE;
+        if (us == Piece.BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove = them;
+        repetitions = countRepetitions();
+    }
+
+    // Only positions since the last irreversible move can repeat, and only every second one has the same side to move.
+    // The first match already carries the count of everything before it, so the walk stops there.
+    private int countRepetitions() {
+        int oldest = Math.max(0, undoSize - halfmoveClock);
+        for (int i = undoSize - 2; i >= oldest; i -= 2) {
+            if (keyHistory[i] == key) {
+                return repetitionHistory[i] + 1;
+            }
+        }
+        return 1;
+    }
+
+    public void unmakeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flag = Move.flag(move);
+        long state = undo[--undoSize];
+
+        sideToMove ^= 1;
+        int us = sideToMove;
+        if (us == Piece.BLACK) {
+            fullmoveNumber--;
+        }
+        castlingRights = (int) (state >>> 4) & 0xF;
+        epSquare = (int) ((state >>> 8) & 0xFF) - 1;
+        halfmoveClock = (int) (state >>> 16);
+        repetitions = repetitionHistory[undoSize];
+
+        int piece = board[to];
+        if (Move.promotionType(move) != Piece.NONE) {
+            removePiece(to, piece);
+            piece = Piece.make(us, Piece.PAWN);
+            addPiece(to, piece);
+        }
+        movePiece(to, from, piece);
+
+        if (flag == Move.CASTLING) {
+            int rook = Piece.make(us, Piece.ROOK);
+            if (to > from) {
+                movePiece(to - 1, to + 1, rook);
+            } else {
+                movePiece(to + 1, to - 2, rook);
+            }
+        }
+
+        int captured = (int) (state & 0xF) - 1;
+        if (captured != Piece.NONE) {
+            addPiece(flag == Move.EN_PASSANT ? to ^ 8 : to, captured);
+        }
+        // The piece updates above touched the key too; the saved one is authoritative
+        key = keyHistory[undoSize];
+    }
+
+    private void addPiece(int square, int piece) {
+        long bit = 1L << square;
+        pieces[piece] |= bit;
+        colors[Piece.color(piece)] |= bit;
+        occupied |= bit;
+        board[square] = (byte) piece;
+        pieceCounts[piece]++;
+        key ^= Zobrist.PIECE_SQUARE[piece][square];
+    }
+
+    private void removePiece(int square, int piece) {
+        long bit = 1L << square;
+        pieces[piece] &= ~bit;
+        colors[Piece.color(piece)] &= ~bit;
+        occupied &= ~bit;
+        board[square] = (byte) Piece.NONE;
+        pieceCounts[piece]--;
+        key ^= Zobrist.PIECE_SQUARE[piece][square];
+    }
+
+    private void movePiece(int from, int to, int piece) {
+        long bits = (1L << from) | (1L << to);
+        pieces[piece] ^= bits;
+        colors[Piece.color(piece)] ^= bits;
+        occupied ^= bits;
+        board[from] = (byte) Piece.NONE;
+        board[to] = (byte) piece;
+        key ^= Zobrist.PIECE_SQUARE[piece][from] ^ Zobrist.PIECE_SQUARE[piece][to];
+    }
+}
@@ -0,0 +1,44 @@
+package com.matey.chess;
+
+/**
+ * Random keys for incremental 64-bit position hashing. The seed is fixed so a
+ * key means the same position on every node and across restarts.
+ */
+public final class Zobrist {
+    static final long[][] PIECE_SQUARE = new long[12][64];
+    static final long[] CASTLING = new long[16];
+    static final long[] EN_PASSANT_FILE = new long[8];
+    static final long BLACK_TO_MOVE;
+
+    static {
+        long seed = 0x6A09E667F3BCC909L;
+        for (int piece = 0; piece < 12; piece++) {
+            for (int square = 0; square < 64; square++) {
+                seed = splitMix(seed);
+                PIECE_SQUARE[piece][square] = mix(seed);
+            }
+        }
+        for (int rights = 0; rights < 16; rights++) {
+            seed = splitMix(seed);
+            CASTLING[rights] = mix(seed);
+        }
+        for (int file = 0; file < 8; file++) {
+            seed = splitMix(seed);
+            EN_PASSANT_FILE[file] = mix(seed);
+        }
+        BLACK_TO_MOVE = mix(splitMix(seed));
+    }
+
+    private Zobrist() {
+    }
+
+    private static long splitMix(long state) {
+        return state + 0x9E3779B97F4A7C15L;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
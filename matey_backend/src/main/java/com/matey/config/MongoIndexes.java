@@ -0,0 +1,111 @@
+package com.matey.config;
+
+import com.matey.model.Game;
+import com.matey.model.User;
+import com.mongodb.client.FindIterable;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Creates the indexes declared on the documents, since automatic index
+ * creation is off, and then asks Mongo for the plan of every hot query.
+ * Startup fails if any of them would scan the whole collection, so a query
+ * that loses its index is caught before it reaches production traffic.
+ */
+@Component
+public class MongoIndexes {
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mappingContext;
+
+    @Value("${app.queryPlanCheckEnabled:true}")
+    private boolean queryPlanCheckEnabled;
+
+    @Autowired
+    public MongoIndexes(MongoTemplate mongoTemplate, MongoMappingContext mappingContext) {
+        this.mongoTemplate = mongoTemplate;
+        this.mappingContext = mappingContext;
+    }
+
+    // A hot query as the driver sends it, by collection
+    private record HotQuery(String name, String collection, Document filter, Document sort) {
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        IndexResolver resolver = IndexResolver.create(mappingContext);
+        for (Class<?> type : List.of(User.class, Game.class)) {
+            IndexOperations indexOps = mongoTemplate.indexOps(type);
+            resolver.resolveIndexFor(type).forEach(indexOps::ensureIndex);
+        }
+        if (queryPlanCheckEnabled) {
+            checkQueryPlans();
+        }
+    }
+
+    private void checkQueryPlans() {
+        // Any id and time will do, only the shape of each query matters to the planner
+        String userId = "000000000000000000000000";
+        Instant now = Instant.now();
+        List<HotQuery> queries = List.of(
+            new HotQuery("games in progress", "games",
+                new Document("status", "IN_PROGRESS"), null),
+            new HotQuery("stale games", "games",
+                new Document("status", "IN_PROGRESS").append("updatedAt", new Document("$lt", now)), null),
+            new HotQuery("game history", "games",
+                new Document("$or", List.of(
+                    new Document("whitePlayerId", userId).append("createdAt", new Document("$lt", now)),
+                    new Document("whitePlayerId", userId).append("createdAt", now)
+                        .append("_id", new Document("$lt", new ObjectId(userId))),
+                    new Document("blackPlayerId", userId).append("createdAt", new Document("$lt", now)),
+                    new Document("blackPlayerId", userId).append("createdAt", now)
+                        .append("_id", new Document("$lt", new ObjectId(userId))))),
+                new Document("createdAt", -1).append("_id", -1)),
+            new HotQuery("user by username", "users", new Document("username", "username"), null),
+            new HotQuery("user by email", "users", new Document("email", "email"), null));
+
+        for (HotQuery query : queries) {
+            FindIterable<Document> find = mongoTemplate.getCollection(query.collection()).find(query.filter()).limit(1);
+            if (query.sort() != null) {
+                find = find.sort(query.sort());
+            }
+            Document plan = find.explain().get("queryPlanner", Document.class);
+            if (scansCollection(plan.get("winningPlan", Document.class))) {
+                throw new IllegalStateException("Query for " + query.name() + " plans a collection scan: "
+                    + plan.get("winningPlan", Document.class).toJson());
+            }
+        }
+        System.out.println("MongoIndexes: Checked plans of " + queries.size() + " hot queries");
+    }
+
+    // Walks the plan tree, whichever of the classic or slot-based shapes the server reports
+    private static boolean scansCollection(Document stage) {
+        if (stage == null) {
+            return false;
+        }
+        if ("COLLSCAN".equals(stage.getString("stage"))) {
+            return true;
+        }
+        for (String child : List.of("inputStage", "queryPlan")) {
+            if (scansCollection(stage.get(child, Document.class))) {
+                return true;
+            }
+        }
+        for (Document input : stage.getList("inputStages", Document.class, List.of())) {
+            if (scansCollection(input)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,33 @@
+package com.matey.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Whether blocking work should run on virtual threads. Follows Spring Boot's
+ * own spring.threads.virtual.enabled switch, which also moves Tomcat's request
+ * threads over, and stays off on runtimes older than Java 21.
+ */
+@Component
+public class VirtualThreads {
+    private final boolean enabled;
+
+    public VirtualThreads(@Value("${spring.threads.virtual.enabled:false}") boolean requested) {
+        this.enabled = requested && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE);
+        if (requested && !enabled) {
+            System.out.println("VirtualThreads: Virtual threads need Java 21, using platform threads");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public ThreadFactory threadFactory(String prefix) {
+        return new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory();
+    }
+}
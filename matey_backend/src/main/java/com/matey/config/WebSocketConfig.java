@@ -1,17 +1,22 @@
 package com.matey.config;
 
+import com.matey.security.JwtAuthenticator;
+import com.matey.security.UserPrincipal;
 import com.matey.service.GameService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.messaging.simp.stomp.StompCommand;
 import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.config.annotation.*;
@@ -23,10 +28,22 @@ import org.springframework.context.event.EventListener;
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final GameService gameService;
+    private final JwtAuthenticator jwtAuthenticator;
+    private final VirtualThreads virtualThreads;
+
+    // Concurrent handlers per channel when running on virtual threads
+    @Value("${app.stompVirtualThreadLimit:10000}")
+    private int virtualThreadLimit;
 
     @Autowired
-    public WebSocketConfig(@Lazy GameService gameService) {
+    public WebSocketConfig(
+        @Lazy GameService gameService,
+        @Lazy JwtAuthenticator jwtAuthenticator,
+        VirtualThreads virtualThreads
+    ) {
         this.gameService = gameService;
+        this.jwtAuthenticator = jwtAuthenticator;
+        this.virtualThreads = virtualThreads;
     }
 
     @Override
@@ -42,21 +59,33 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.setUserDestinationPrefix("/user");
     }
 
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (virtualThreads.isEnabled()) {
+            registration.taskExecutor(virtualThreadExecutor("stomp-outbound-"));
+        }
+    }
+
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Handlers block on Mongo; on virtual threads a slow query no longer holds one of a few pool threads
+        if (virtualThreads.isEnabled()) {
+            registration.taskExecutor(virtualThreadExecutor("stomp-inbound-"));
+        }
         registration.interceptors(new ChannelInterceptor() {
             @Override
             public Message<?> preSend(Message<?> message, MessageChannel channel) {
                 StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
                 
+                // The token is checked once per connection; every later frame carries the bound principal
                 if (StompCommand.CONNECT.equals(accessor.getCommand())) {
-                    String sessionId = accessor.getSessionId();
-                    String userId = accessor.getFirstNativeHeader("userId");
-                    String username = accessor.getFirstNativeHeader("username");
-                    
-                    if (userId != null && username != null) {
-                        gameService.handleSessionConnect(sessionId, userId, username);
+                    String jwt = JwtAuthenticator.bearerToken(accessor.getFirstNativeHeader("Authorization"));
+                    UserPrincipal principal = jwt != null ? jwtAuthenticator.authenticate(jwt) : null;
+                    if (principal == null) {
+                        throw new MessagingException("Invalid or missing token");
                     }
+                    accessor.setUser(principal);
+                    gameService.handleSessionConnect(accessor.getSessionId(), principal.getId(), principal.getUsername());
                 }
                 
                 return message;
@@ -64,6 +93,17 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         });
     }
 
+    // The channel API only takes a ThreadPoolTaskExecutor, so it is given virtual threads that die when idle
+    private ThreadPoolTaskExecutor virtualThreadExecutor(String prefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadFactory(virtualThreads.threadFactory(prefix));
+        executor.setCorePoolSize(virtualThreadLimit);
+        executor.setMaxPoolSize(virtualThreadLimit);
+        executor.setKeepAliveSeconds(1);
+        executor.setAllowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     @EventListener
     public void handleWebSocketDisconnectListener(SessionDisconnectEvent event) {
         String sessionId = event.getSessionId();
@@ -1,64 +1,72 @@
 package com.matey.controller;
 
 import com.matey.service.GameService;
+import com.matey.service.PresenceService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
+import java.security.Principal;
 import java.util.Map;
 
+// Every session is bound to its user at CONNECT, so the caller is always the principal, never a payload field
 @Controller
 public class GameController {
     @Autowired
     private GameService gameService;
 
+    @Autowired
+    private PresenceService presenceService;
+
     @MessageMapping("/player/connect")
-    public void handlePlayerConnect(@Payload Map<String, String> payload) {
-        String userId = payload.get("userId");
-        String username = payload.get("username");
-        gameService.handlePlayerConnect(userId, username);
+    public void handlePlayerConnect(Principal principal) {
+        gameService.handlePlayerConnect(principal.getName());
     }
 
     @MessageMapping("/player/disconnect")
-    public void handlePlayerDisconnect(@Payload Map<String, String> payload) {
-        String userId = payload.get("userId");
-        gameService.handlePlayerDisconnect(userId);
+    public void handlePlayerDisconnect(Principal principal) {
+        gameService.handlePlayerDisconnect(principal.getName());
     }
 
-    @MessageMapping("/online-users/get")
-    public void getOnlineUsers(@Payload Map<String, String> payload) {
-        gameService.broadcastOnlineUsers();
+    // Subscribing to /app/online-users/get returns the subscriber's online friends to them only
+    @SubscribeMapping("/online-users/get")
+    public Mono<Map<String, Object>> getOnlineUsers(Principal principal) {
+        return presenceService.snapshot(principal.getName());
     }
 
     @MessageMapping("/game/find")
-    public void findGame(@Payload Map<String, String> payload) {
-        String userId = payload.get("userId");
+    public void findGame(@Payload Map<String, String> payload, Principal principal) {
+        String userId = principal.getName();
         System.out.println("GameController: Received find game request for user: " + userId);
         System.out.println("GameController: Payload: " + payload);
-        gameService.findGame(userId);
+        gameService.findGame(userId, payload.get("timeControl"));
     }
 
     @MessageMapping("/game/cancel")
-    public void cancelSearch(@Payload Map<String, String> payload) {
-        String userId = payload.get("userId");
+    public void cancelSearch(Principal principal) {
+        String userId = principal.getName();
         System.out.println("GameController: Received cancel search request for user: " + userId);
         gameService.cancelSearch(userId);
     }
 
     @MessageMapping("/game/move")
-    public void handleMove(@Payload Map<String, Object> payload) {
+    public void handleMove(@Payload Map<String, Object> payload, Principal principal) {
         String gameId = (String) payload.get("gameId");
-        String playerId = (String) payload.get("playerId");
         @SuppressWarnings("unchecked")
         Map<String, String> move = (Map<String, String>) payload.get("move");
         
-        gameService.handleMove(gameId, playerId, move);
+        gameService.handleMove(gameId, principal.getName(), move);
     }
 
     @MessageMapping("/game/resign")
-    public void handleResign(@Payload Map<String, String> payload) {
-        String gameId = payload.get("gameId");
-        String playerId = payload.get("playerId");
-        gameService.handleResign(gameId, playerId);
+    public void handleResign(@Payload Map<String, String> payload, Principal principal) {
+        gameService.handleResign(payload.get("gameId"), principal.getName());
+    }
+
+    @MessageMapping("/game/claim-draw")
+    public void handleClaimDraw(@Payload Map<String, String> payload, Principal principal) {
+        gameService.handleClaimDraw(payload.get("gameId"), principal.getName());
     }
-} 
\ No newline at end of file
+}
@@ -1,19 +1,30 @@
 package com.matey.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.matey.model.User;
 import com.matey.payload.ApiResponse;
+import com.matey.payload.CursorPage;
+import com.matey.payload.GameSummary;
 import com.matey.payload.PasswordChangeRequest;
 import com.matey.payload.UserProfile;
 import com.matey.security.CurrentUser;
 import com.matey.security.UserPrincipal;
+import com.matey.service.GameHistoryService;
 import com.matey.service.UserService;
 import jakarta.validation.Valid;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/api/users")
@@ -23,6 +34,12 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private GameHistoryService gameHistoryService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping("/me")
     public ResponseEntity<UserProfile> getCurrentUser(@CurrentUser UserPrincipal currentUser) {
         User user = userService.getUserById(currentUser.getId());
@@ -70,12 +87,26 @@ public class UserController {
     }
 
     @GetMapping("/members")
-    public ResponseEntity<?> getMembers(@CurrentUser UserPrincipal currentUser) {
+    public ResponseEntity<?> getMembers(
+            @CurrentUser UserPrincipal currentUser,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            CursorPage<UserProfile> members = userService.getMembers(currentUser.getId(), after, limit);
+            return ResponseEntity.ok(members);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> searchMembers(
+            @CurrentUser UserPrincipal currentUser,
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "10") int limit) {
         try {
-            List<UserProfile> members = userService.getAllUsers().stream()
-                .filter(user -> !user.getId().equals(currentUser.getId()))
-                .map(user -> new UserProfile(user.getId(), user.getUsername(), user.getEmail()))
-                .collect(Collectors.toList());
+            List<UserProfile> members = userService.searchMembers(currentUser.getId(), query, limit);
             return ResponseEntity.ok(members);
         } catch (Exception e) {
             return ResponseEntity.badRequest()
@@ -83,12 +114,69 @@ public class UserController {
         }
     }
 
+    // Every member from the cursor on as newline-delimited JSON, written as it is read
+    @GetMapping("/members/stream")
+    public ResponseEntity<?> streamMembers(
+            @CurrentUser UserPrincipal currentUser,
+            @RequestParam(required = false) String after) {
+        // Checked before the body runs, since the 200 and the content type are committed by then
+        if (after != null && !ObjectId.isValid(after)) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, "Invalid cursor"));
+        }
+        String userId = currentUser.getId();
+        StreamingResponseBody body = out -> {
+            userService.streamMembers(userId, after, member -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(member));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    @GetMapping("/{userId}/games")
+    public ResponseEntity<?> getGames(
+            @PathVariable String userId,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit,
+            WebRequest request) {
+        try {
+            CursorPage<GameSummary> games = gameHistoryService.getHistory(userId, after, limit);
+            // Any new, finished or updated game on the page moves the newest updatedAt
+            long lastUpdated = games.getItems().stream()
+                    .map(GameSummary::getUpdatedAt)
+                    .filter(Objects::nonNull)
+                    .mapToLong(Instant::toEpochMilli)
+                    .max()
+                    .orElse(0);
+            // Usernames are filled in from the index, so a rename changes the page without touching a game
+            int usernames = games.getItems().stream()
+                    .map(game -> game.getWhiteUsername() + "/" + game.getBlackUsername())
+                    .toList()
+                    .hashCode();
+            String eTag = "W/\"" + games.getItems().size() + "-" + lastUpdated + "-"
+                    + Integer.toHexString(usernames) + "\"";
+            if (request.checkNotModified(eTag)) {
+                return null;
+            }
+            return ResponseEntity.ok().eTag(eTag).body(games);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
     @GetMapping("/me/friends")
     public ResponseEntity<?> getFriends(@CurrentUser UserPrincipal currentUser) {
         try {
-            List<UserProfile> friends = userService.getFriends(currentUser.getId()).stream()
-                .map(user -> new UserProfile(user.getId(), user.getUsername(), user.getEmail()))
-                .collect(Collectors.toList());
+            List<UserProfile> friends = userService.getFriends(currentUser.getId());
             return ResponseEntity.ok(friends);
         } catch (Exception e) {
             return ResponseEntity.badRequest()
@@ -99,9 +187,7 @@ public class UserController {
     @GetMapping("/me/friend-requests")
     public ResponseEntity<?> getFriendRequests(@CurrentUser UserPrincipal currentUser) {
         try {
-            List<UserProfile> requests = userService.getFriendRequests(currentUser.getId()).stream()
-                .map(user -> new UserProfile(user.getId(), user.getUsername(), user.getEmail()))
-                .collect(Collectors.toList());
+            List<UserProfile> requests = userService.getFriendRequests(currentUser.getId());
             return ResponseEntity.ok(requests);
         } catch (Exception e) {
             return ResponseEntity.badRequest()
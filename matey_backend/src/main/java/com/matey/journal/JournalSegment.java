@@ -0,0 +1,118 @@
+package com.matey.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One fixed-size, memory-mapped journal file. Records are appended back to
+ * back; the first slot whose checksum does not match marks the end of the
+ * written part, which covers both the zero-filled tail and a torn last write.
+ *
+ * <pre>
+ * offset  0  long   game key
+ * offset  8  long   timestamp (epoch ms)
+ * offset 16  int    ply after the record
+ * offset 20  short  packed move, or the result for an END record
+ * offset 22  short  record kind
+ * offset 24  int    checksum of bytes 0-23
+ * offset 28  int    unused
+ * </pre>
+ */
+class JournalSegment {
+    static final int RECORD_SIZE = 32;
+
+    final long sequence;
+    final Path path;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private int count;
+    // Highest ply journaled per game, to know when every record here is covered by a flush
+    final Map<Long, Integer> maxPlyByGame = new HashMap<>();
+
+    private JournalSegment(long sequence, Path path, MappedByteBuffer buffer) {
+        this.sequence = sequence;
+        this.path = path;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity() / RECORD_SIZE;
+    }
+
+    static JournalSegment create(Path path, long sequence, int sizeInBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new JournalSegment(sequence, path,
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, sizeInBytes - sizeInBytes % RECORD_SIZE));
+        }
+    }
+
+    static JournalSegment open(Path path, long sequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size() - channel.size() % RECORD_SIZE;
+            JournalSegment segment = new JournalSegment(sequence, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            while (segment.count < segment.capacity && segment.isValid(segment.count)) {
+                int offset = segment.count * RECORD_SIZE;
+                segment.maxPlyByGame.merge(segment.buffer.getLong(offset), segment.buffer.getInt(offset + 16), Math::max);
+                segment.count++;
+            }
+            return segment;
+        }
+    }
+
+    boolean isFull() {
+        return count == capacity;
+    }
+
+    // Caller serializes appends
+    void append(long gameKey, int ply, int data, int kind, long timestamp) {
+        int offset = count * RECORD_SIZE;
+        buffer.putLong(offset, gameKey);
+        buffer.putLong(offset + 8, timestamp);
+        buffer.putInt(offset + 16, ply);
+        buffer.putShort(offset + 20, (short) data);
+        buffer.putShort(offset + 22, (short) kind);
+        buffer.putInt(offset + 24, checksum(gameKey, timestamp, ply, data, kind));
+        count++;
+        maxPlyByGame.merge(gameKey, ply, Math::max);
+    }
+
+    void replay(MoveJournal.RecordHandler handler) {
+        for (int i = 0; i < count; i++) {
+            int offset = i * RECORD_SIZE;
+            handler.onRecord(buffer.getLong(offset), buffer.getInt(offset + 16), buffer.getShort(offset + 22),
+                buffer.getShort(offset + 20) & 0xFFFF, buffer.getLong(offset + 8));
+        }
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private boolean isValid(int index) {
+        int offset = index * RECORD_SIZE;
+        return buffer.getInt(offset + 24) == checksum(
+            buffer.getLong(offset),
+            buffer.getLong(offset + 8),
+            buffer.getInt(offset + 16),
+            buffer.getShort(offset + 20) & 0xFFFF,
+            buffer.getShort(offset + 22));
+    }
+
+    // Never zero, so the zero-filled tail of a segment never validates
+    private static int checksum(long gameKey, long timestamp, int ply, int data, int kind) {
+        long h = 0x27D4EB2F165667C5L;
+        h = (h ^ gameKey) * 0x9E3779B97F4A7C15L;
+        h = (h ^ timestamp) * 0x9E3779B97F4A7C15L;
+        h = (h ^ (((long) ply << 32) | ((long) (data & 0xFFFF) << 16) | (kind & 0xFFFF))) * 0x9E3779B97F4A7C15L;
+        int checksum = (int) (h ^ (h >>> 32));
+        return checksum == 0 ? 1 : checksum;
+    }
+}
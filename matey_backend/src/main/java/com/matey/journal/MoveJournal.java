@@ -0,0 +1,192 @@
+package com.matey.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Append-only local journal of moves and game results, kept in memory-mapped
+ * segment files. Appends are plain stores into the mapped buffer; a background
+ * thread forces the active segment to disk every few milliseconds, so all moves
+ * in that window share one sync (group commit). Appends therefore survive a
+ * crash of the process at once, but an OS crash or power loss only once forced.
+ *
+ * On startup the segments left by the previous run are replayed so games can be
+ * rebuilt past their last flush to Mongo. Segments are deleted once every game
+ * in them has been flushed up to the last ply they hold.
+ */
+@Component
+public class MoveJournal {
+    public static final int MOVE = 1;
+    public static final int END = 2;
+
+    private static final String SEGMENT_PREFIX = "moves-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    public interface RecordHandler {
+        void onRecord(long gameKey, int ply, int kind, int data, long timestamp);
+    }
+
+    @Value("${app.journalDir:journal}")
+    private String journalDir;
+
+    @Value("${app.journalSegmentSizeInBytes:8388608}")
+    private int segmentSizeInBytes;
+
+    @Value("${app.journalForceIntervalInMs:10}")
+    private long forceIntervalInMs;
+
+    @Value("${app.journalCompactIntervalInMs:10000}")
+    private long compactIntervalInMs;
+
+    private final List<JournalSegment> sealed = new ArrayList<>();
+    private final Map<Long, Integer> flushedPly = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "journal-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Path directory;
+    private JournalSegment active;
+    private volatile boolean unsynced;
+
+    @PostConstruct
+    public void open() throws IOException {
+        directory = Paths.get(journalDir);
+        Files.createDirectories(directory);
+
+        long nextSequence = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files.sorted()::iterator) {
+                String name = path.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    long sequence = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                    sealed.add(JournalSegment.open(path, sequence));
+                    nextSequence = Math.max(nextSequence, sequence + 1);
+                }
+            }
+        }
+        // The previous run's segments are only read from here on; appends always start a fresh one
+        active = newSegment(nextSequence);
+        System.out.println("MoveJournal: Opened " + directory.toAbsolutePath() + " with " + sealed.size() + " segments to replay");
+
+        syncer.scheduleWithFixedDelay(this::sync, forceIntervalInMs, forceIntervalInMs, TimeUnit.MILLISECONDS);
+        syncer.scheduleWithFixedDelay(this::compact, compactIntervalInMs, compactIntervalInMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        syncer.shutdown();
+        syncer.awaitTermination(1, TimeUnit.SECONDS);
+        synchronized (this) {
+            active.force();
+        }
+    }
+
+    // Stable 64-bit key for a game id (FNV-1a, then a finalizer to spread the bits)
+    public static long gameKey(String gameId) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < gameId.length(); i++) {
+            h = (h ^ gameId.charAt(i)) * 0x100000001B3L;
+        }
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+
+    public void appendMove(long gameKey, int ply, int packedMove) {
+        append(gameKey, ply, packedMove, MOVE);
+    }
+
+    public void appendEnd(long gameKey, int ply, int result) {
+        append(gameKey, ply, result, END);
+    }
+
+    // Feeds every record of the previous run's segments to the handler, oldest first
+    public synchronized void replay(RecordHandler handler) {
+        for (JournalSegment segment : sealed) {
+            segment.replay(handler);
+        }
+    }
+
+    // Called once a game's state up to the given ply is safely in Mongo
+    public void markFlushed(long gameKey, int ply) {
+        flushedPly.merge(gameKey, ply, Math::max);
+    }
+
+    private synchronized void append(long gameKey, int ply, int data, int kind) {
+        if (active.isFull()) {
+            roll();
+        }
+        active.append(gameKey, ply, data, kind, System.currentTimeMillis());
+        unsynced = true;
+    }
+
+    private void roll() {
+        active.force();
+        sealed.add(active);
+        active = newSegment(active.sequence + 1);
+    }
+
+    private JournalSegment newSegment(long sequence) {
+        try {
+            Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+            return JournalSegment.create(path, sequence, segmentSizeInBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create journal segment", e);
+        }
+    }
+
+    private void sync() {
+        if (!unsynced) {
+            return;
+        }
+        unsynced = false;
+        JournalSegment segment;
+        synchronized (this) {
+            segment = active;
+        }
+        try {
+            segment.force();
+        } catch (Exception e) {
+            unsynced = true;
+            System.out.println("MoveJournal: Sync failed: " + e.getMessage());
+        }
+    }
+
+    // Drops sealed segments whose every game has been flushed past the last ply they hold
+    private synchronized void compact() {
+        Iterator<JournalSegment> it = sealed.iterator();
+        while (it.hasNext()) {
+            JournalSegment segment = it.next();
+            boolean covered = segment.maxPlyByGame.entrySet().stream()
+                .allMatch(e -> flushedPly.getOrDefault(e.getKey(), -1) >= e.getValue());
+            if (covered) {
+                try {
+                    segment.delete();
+                    it.remove();
+                } catch (IOException e) {
+                    System.out.println("MoveJournal: Could not delete " + segment.path + ": " + e.getMessage());
+                }
+            }
+        }
+        // Forget games no segment refers to any more
+        flushedPly.keySet().removeIf(gameKey -> !active.maxPlyByGame.containsKey(gameKey)
+            && sealed.stream().noneMatch(segment -> segment.maxPlyByGame.containsKey(gameKey)));
+    }
+}
@@ -1,18 +1,31 @@
 package com.matey.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.Instant;
 
+// Created at startup by MongoIndexes; the partial index only holds the few games in progress
 @Document(collection = "games")
+@CompoundIndex(name = "whitePlayerId_createdAt_id", def = "{'whitePlayerId': 1, 'createdAt': -1, '_id': -1}")
+@CompoundIndex(name = "blackPlayerId_createdAt_id", def = "{'blackPlayerId': 1, 'createdAt': -1, '_id': -1}")
+@CompoundIndex(name = "inProgress_updatedAt", def = "{'status': 1, 'updatedAt': 1}",
+    partialFilter = "{'status': 'IN_PROGRESS'}")
 public class Game {
     @Id
     private String id;
     private String whitePlayerId;
     private String blackPlayerId;
     private String currentPosition;
-    private String status; // WAITING, IN_PROGRESS, FINISHED
-    private String winner; // WHITE, BLACK, DRAW
+    private String status; // WAITING, IN_PROGRESS, FINISHED, ABORTED
+    private String winner; // WHITE, BLACK, DRAW; null when aborted
+    private String timeControl; // e.g. "5+0", see TimeControl
+    // Time left on each clock when the side to move started thinking
+    private Long whiteClockMs;
+    private Long blackClockMs;
+    private Instant turnStartedAt;
+    // Every move played, packed two bytes each and stored as BSON binary; see MoveList
+    private byte[] moves;
     private Instant createdAt;
     private Instant updatedAt;
 
@@ -23,6 +36,22 @@ public class Game {
         this.currentPosition = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"; // Initial position
     }
 
+    public Game(Game other) {
+        this.id = other.id;
+        this.whitePlayerId = other.whitePlayerId;
+        this.blackPlayerId = other.blackPlayerId;
+        this.currentPosition = other.currentPosition;
+        this.status = other.status;
+        this.winner = other.winner;
+        this.timeControl = other.timeControl;
+        this.whiteClockMs = other.whiteClockMs;
+        this.blackClockMs = other.blackClockMs;
+        this.turnStartedAt = other.turnStartedAt;
+        this.moves = other.moves;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
@@ -75,6 +104,46 @@ public class Game {
         this.updatedAt = Instant.now();
     }
 
+    public String getTimeControl() {
+        return timeControl;
+    }
+
+    public void setTimeControl(String timeControl) {
+        this.timeControl = timeControl;
+    }
+
+    public Long getWhiteClockMs() {
+        return whiteClockMs;
+    }
+
+    public void setWhiteClockMs(Long whiteClockMs) {
+        this.whiteClockMs = whiteClockMs;
+    }
+
+    public Long getBlackClockMs() {
+        return blackClockMs;
+    }
+
+    public void setBlackClockMs(Long blackClockMs) {
+        this.blackClockMs = blackClockMs;
+    }
+
+    public Instant getTurnStartedAt() {
+        return turnStartedAt;
+    }
+
+    public void setTurnStartedAt(Instant turnStartedAt) {
+        this.turnStartedAt = turnStartedAt;
+    }
+
+    public byte[] getMoves() {
+        return moves;
+    }
+
+    public void setMoves(byte[] moves) {
+        this.moves = moves;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
@@ -0,0 +1,29 @@
+package com.matey.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A player's Glicko-2 rating in one time control category, stored on the user.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Rating {
+    public static final double DEFAULT_RATING = 1500;
+    public static final double DEFAULT_DEVIATION = 350;
+    public static final double DEFAULT_VOLATILITY = 0.06;
+
+    private double rating = DEFAULT_RATING;
+    private double deviation = DEFAULT_DEVIATION;
+    private double volatility = DEFAULT_VOLATILITY;
+    private int games;
+    private Instant updatedAt;
+
+    public Rating(Rating other) {
+        this(other.rating, other.deviation, other.volatility, other.games, other.updatedAt);
+    }
+}
@@ -0,0 +1,77 @@
+package com.matey.model;
+
+/**
+ * A time control written as "minutes+increment", e.g. "5+3". Games are rated
+ * and matched per category, which follows the usual estimate of
+ * base + 40 * increment seconds for a game.
+ */
+public final class TimeControl {
+    public static final TimeControl DEFAULT = new TimeControl(300, 0);
+
+    private final int baseSeconds;
+    private final int incrementSeconds;
+
+    public TimeControl(int baseSeconds, int incrementSeconds) {
+        if (baseSeconds <= 0 || incrementSeconds < 0) {
+            throw new IllegalArgumentException("Invalid time control");
+        }
+        this.baseSeconds = baseSeconds;
+        this.incrementSeconds = incrementSeconds;
+    }
+
+    public static TimeControl parse(String value) {
+        if (value == null || value.isBlank()) {
+            return DEFAULT;
+        }
+        String[] parts = value.trim().split("\\+");
+        try {
+            double minutes = Double.parseDouble(parts[0]);
+            int increment = parts.length > 1 ? Integer.parseInt(parts[1]) : 0;
+            return new TimeControl((int) Math.round(minutes * 60), increment);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid time control: " + value);
+        }
+    }
+
+    public int getBaseSeconds() {
+        return baseSeconds;
+    }
+
+    public int getIncrementSeconds() {
+        return incrementSeconds;
+    }
+
+    public String getCategory() {
+        int estimatedSeconds = baseSeconds + 40 * incrementSeconds;
+        if (estimatedSeconds < 180) {
+            return "bullet";
+        }
+        if (estimatedSeconds < 480) {
+            return "blitz";
+        }
+        if (estimatedSeconds < 1500) {
+            return "rapid";
+        }
+        return "classical";
+    }
+
+    @Override
+    public String toString() {
+        String minutes = baseSeconds % 60 == 0
+            ? String.valueOf(baseSeconds / 60)
+            : String.valueOf(baseSeconds / 60.0);
+        return minutes + "+" + incrementSeconds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TimeControl other
+            && baseSeconds == other.baseSeconds
+            && incrementSeconds == other.incrementSeconds;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * baseSeconds + incrementSeconds;
+    }
+}
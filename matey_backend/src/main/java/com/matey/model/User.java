@@ -6,10 +6,11 @@ import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 @Data
@@ -36,11 +37,17 @@ public class User {
 
     private String avatar;
 
-    @DBRef(lazy = true)
-    private Set<User> friends = new HashSet<>();
+    // Keyed by time control category, see TimeControl.getCategory()
+    private Map<String, Rating> ratings = new HashMap<>();
 
-    @DBRef(lazy = true)
-    private Set<User> friendRequests = new HashSet<>();
+    // Ids only, so membership checks never load another user; see FriendGraphMigration
+    private Set<String> friendIds = new HashSet<>();
+
+    // Ids of users who sent this user a friend request
+    private Set<String> friendRequestIds = new HashSet<>();
+
+    // Ids of users this user sent a request to; mirrors their friendRequestIds
+    private Set<String> sentFriendRequestIds = new HashSet<>();
 
     public User(String username, String email, String password) {
         this.username = username;
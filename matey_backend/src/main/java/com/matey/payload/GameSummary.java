@@ -0,0 +1,24 @@
+package com.matey.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// A finished or running game as listed in a player's history, without the position or moves
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class GameSummary {
+    private String id;
+    private String whitePlayerId;
+    private String blackPlayerId;
+    private String whiteUsername;
+    private String blackUsername;
+    private String status;
+    private String winner;
+    private String timeControl;
+    private Instant createdAt;
+    private Instant updatedAt;
+}
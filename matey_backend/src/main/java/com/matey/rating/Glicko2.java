@@ -0,0 +1,124 @@
+package com.matey.rating;
+
+import com.matey.model.Rating;
+
+/**
+ * Glicko-2 as described by Glickman. Ratings are converted to the internal
+ * scale, updated from all results of one rating period, and converted back.
+ * Periods a player sits out only widen their deviation, which is applied
+ * lazily through {@link #inflate} when they next play.
+ */
+public final class Glicko2 {
+    private static final double SCALE = 173.7178;
+    // Constrains how fast volatility changes; Glickman suggests 0.3 to 1.2
+    private static final double TAU = 0.5;
+    private static final double EPSILON = 0.000001;
+    private static final int MAX_ITERATIONS = 100;
+
+    private Glicko2() {
+    }
+
+    /**
+     * Returns a copy of {@code rating} whose deviation has grown by
+     * {@code periods} rating periods of inactivity.
+     */
+    public static Rating inflate(Rating rating, double periods) {
+        Rating inflated = new Rating(rating);
+        if (periods > 0) {
+            double phi = rating.getDeviation() / SCALE;
+            double sigma = rating.getVolatility();
+            inflated.setDeviation(clampDeviation(Math.sqrt(phi * phi + periods * sigma * sigma) * SCALE));
+        }
+        return inflated;
+    }
+
+    /**
+     * Rates a player over one period. The opponent arrays hold each opponent's
+     * values from before the period and {@code scores} is 1, 0.5 or 0 from the
+     * player's side; only the first {@code count} entries are read.
+     */
+    public static Rating rate(Rating player, double[] opponentRatings, double[] opponentDeviations,
+                              double[] scores, int count) {
+        double mu = (player.getRating() - Rating.DEFAULT_RATING) / SCALE;
+        double phi = player.getDeviation() / SCALE;
+        double sigma = player.getVolatility();
+        Rating rated = new Rating(player);
+        if (count == 0) {
+            rated.setDeviation(clampDeviation(Math.sqrt(phi * phi + sigma * sigma) * SCALE));
+            return rated;
+        }
+
+        double varianceInverse = 0;
+        double improvement = 0;
+        for (int i = 0; i < count; i++) {
+            double opponentMu = (opponentRatings[i] - Rating.DEFAULT_RATING) / SCALE;
+            double g = g(opponentDeviations[i] / SCALE);
+            double expected = 1 / (1 + Math.exp(-g * (mu - opponentMu)));
+            varianceInverse += g * g * expected * (1 - expected);
+            improvement += g * (scores[i] - expected);
+        }
+        double variance = 1 / varianceInverse;
+        double delta = variance * improvement;
+
+        double newSigma = volatility(phi, sigma, variance, delta);
+        double phiStar = Math.sqrt(phi * phi + newSigma * newSigma);
+        double newPhi = 1 / Math.sqrt(1 / (phiStar * phiStar) + 1 / variance);
+        double newMu = mu + newPhi * newPhi * improvement;
+
+        rated.setRating(newMu * SCALE + Rating.DEFAULT_RATING);
+        rated.setDeviation(clampDeviation(newPhi * SCALE));
+        rated.setVolatility(newSigma);
+        rated.setGames(player.getGames() + count);
+        return rated;
+    }
+
+    private static double g(double phi) {
+        return 1 / Math.sqrt(1 + 3 * phi * phi / (Math.PI * Math.PI));
+    }
+
+    // Step 5 of the paper: solve for the new volatility with the Illinois method
+    private static double volatility(double phi, double sigma, double variance, double delta) {
+        double a = Math.log(sigma * sigma);
+        double phiSquared = phi * phi;
+        double deltaSquared = delta * delta;
+
+        double lower = a;
+        double upper;
+        if (deltaSquared > phiSquared + variance) {
+            upper = Math.log(deltaSquared - phiSquared - variance);
+        } else {
+            int k = 1;
+            while (f(a - k * TAU, a, phiSquared, variance, deltaSquared) < 0) {
+                k++;
+            }
+            upper = a - k * TAU;
+        }
+
+        double fLower = f(lower, a, phiSquared, variance, deltaSquared);
+        double fUpper = f(upper, a, phiSquared, variance, deltaSquared);
+        for (int i = 0; i < MAX_ITERATIONS && Math.abs(upper - lower) > EPSILON; i++) {
+            double next = lower + (lower - upper) * fLower / (fUpper - fLower);
+            double fNext = f(next, a, phiSquared, variance, deltaSquared);
+            if (fNext * fUpper <= 0) {
+                lower = upper;
+                fLower = fUpper;
+            } else {
+                fLower /= 2;
+            }
+            upper = next;
+            fUpper = fNext;
+        }
+        return Math.exp(lower / 2);
+    }
+
+    private static double f(double x, double a, double phiSquared, double variance, double deltaSquared) {
+        double ex = Math.exp(x);
+        double denominator = phiSquared + variance + ex;
+        return ex * (deltaSquared - phiSquared - variance - ex) / (2 * denominator * denominator)
+            - (x - a) / (TAU * TAU);
+    }
+
+    private static double clampDeviation(double deviation) {
+        return Math.min(deviation, Rating.DEFAULT_DEVIATION);
+    }
+}
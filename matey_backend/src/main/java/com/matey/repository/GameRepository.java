@@ -1,14 +1,31 @@
 package com.matey.repository;
 
 import com.matey.model.Game;
+import com.matey.payload.GameSummary;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface GameRepository extends MongoRepository<Game, String> {
     List<Game> findByStatus(String status);
-    List<Game> findByWhitePlayerIdOrBlackPlayerId(String whitePlayerId, String blackPlayerId);
+
+    // Newest first, strictly after the (createdAt, _id) cursor in that order; each $or branch
+    // seeks on one player's index, so a deep page costs the same as the first
+    @Query(value = "{ '$or': [ "
+        + "{ 'whitePlayerId': ?0, 'createdAt': { '$lt': ?1 } }, "
+        + "{ 'whitePlayerId': ?0, 'createdAt': ?1, '_id': { '$lt': ?2 } }, "
+        + "{ 'blackPlayerId': ?0, 'createdAt': { '$lt': ?1 } }, "
+        + "{ 'blackPlayerId': ?0, 'createdAt': ?1, '_id': { '$lt': ?2 } } ] }",
+        fields = "{ 'whitePlayerId': 1, 'blackPlayerId': 1, 'status': 1, 'winner': 1, "
+            + "'timeControl': 1, 'createdAt': 1, 'updatedAt': 1 }",
+        sort = "{ 'createdAt': -1, '_id': -1 }")
+    List<GameSummary> findHistory(String userId, Instant createdBefore, ObjectId idBefore, Limit limit);
+
     Optional<Game> findByIdAndStatus(String id, String status);
 } 
\ No newline at end of file
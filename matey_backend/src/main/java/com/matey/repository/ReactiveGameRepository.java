@@ -0,0 +1,10 @@
+package com.matey.repository;
+
+import com.matey.model.Game;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+// Non-blocking access for the live game path; GameRepository stays for startup and REST
+@Repository
+public interface ReactiveGameRepository extends ReactiveMongoRepository<Game, String> {
+}
@@ -0,0 +1,10 @@
+package com.matey.repository;
+
+import com.matey.model.User;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+// Non-blocking access for lookups made while notifying players
+@Repository
+public interface ReactiveUserRepository extends ReactiveMongoRepository<User, String> {
+}
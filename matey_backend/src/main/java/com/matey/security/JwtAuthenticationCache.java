@@ -0,0 +1,74 @@
+package com.matey.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Principals of tokens that have already been verified, keyed by a SHA-256
+ * digest of the token so raw tokens are never held. An entry lives until its
+ * token expires or its user changes, so a client reusing its token costs
+ * neither a signature check nor a user lookup.
+ */
+@Component
+public class JwtAuthenticationCache {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    @Value("${app.jwtCacheMaxSize:10000}")
+    private int maxSize;
+
+    private record Entry(UserPrincipal principal, long expiresAt) {
+    }
+
+    public UserPrincipal get(String digest) {
+        Entry entry = entries.get(digest);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt() <= System.currentTimeMillis()) {
+            entries.remove(digest, entry);
+            return null;
+        }
+        return entry.principal();
+    }
+
+    public void put(String digest, UserPrincipal principal, long expiresAt) {
+        if (entries.size() >= maxSize) {
+            makeRoom();
+        }
+        entries.put(digest, new Entry(principal, expiresAt));
+    }
+
+    // Called when a user's details or password change
+    public void evictUser(String userId) {
+        entries.values().removeIf(entry -> entry.principal().getId().equals(userId));
+    }
+
+    public static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    // Drops expired entries, then an arbitrary tenth of the rest if that was not enough
+    private void makeRoom() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+        int toDrop = entries.size() - maxSize + maxSize / 10;
+        Iterator<String> keys = entries.keySet().iterator();
+        while (toDrop-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.matey.security;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Turns a bearer token into its user, shared by the REST filter and the STOMP
+ * handshake. A token is verified and its user loaded only the first time it is
+ * seen; after that the principal comes from {@link JwtAuthenticationCache}.
+ */
+@Component
+public class JwtAuthenticator {
+    private final JwtTokenProvider tokenProvider;
+    private final CustomUserDetailsService customUserDetailsService;
+    private final JwtAuthenticationCache authenticationCache;
+
+    @Autowired
+    public JwtAuthenticator(
+        JwtTokenProvider tokenProvider,
+        CustomUserDetailsService customUserDetailsService,
+        JwtAuthenticationCache authenticationCache
+    ) {
+        this.tokenProvider = tokenProvider;
+        this.customUserDetailsService = customUserDetailsService;
+        this.authenticationCache = authenticationCache;
+    }
+
+    // Returns null for an invalid or expired token
+    public UserPrincipal authenticate(String jwt) {
+        String digest = JwtAuthenticationCache.digest(jwt);
+        UserPrincipal principal = authenticationCache.get(digest);
+        if (principal != null) {
+            return principal;
+        }
+
+        Claims claims = tokenProvider.parseClaims(jwt);
+        if (claims == null) {
+            return null;
+        }
+        principal = (UserPrincipal) customUserDetailsService.loadUserById(claims.getSubject());
+        authenticationCache.put(digest, principal, claims.getExpiration().getTime());
+        return principal;
+    }
+
+    // The token of an "Authorization: Bearer ..." header value, or null
+    public static String bearerToken(String header) {
+        if (header != null && header.startsWith("Bearer ") && header.length() > 7) {
+            return header.substring(7);
+        }
+        return null;
+    }
+}
@@ -14,6 +14,9 @@ public class JwtTokenProvider {
 
     private final Key jwtSecret = Keys.secretKeyFor(SignatureAlgorithm.HS512);
 
+    // Parsers are immutable and thread safe, so one is built and shared
+    private final JwtParser jwtParser = Jwts.parserBuilder().setSigningKey(jwtSecret).build();
+
     @Value("${app.jwtExpirationInMs:86400000}")
     private int jwtExpirationInMs; // 24 hours by default
 
@@ -32,19 +35,17 @@ public class JwtTokenProvider {
     }
 
     public String getUserIdFromJWT(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(jwtSecret)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.getSubject();
+        return jwtParser.parseClaimsJws(token).getBody().getSubject();
     }
 
     public boolean validateToken(String authToken) {
+        return parseClaims(authToken) != null;
+    }
+
+    // Verifies the token once and returns its claims, or null if it is not valid
+    public Claims parseClaims(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(jwtSecret).build().parseClaimsJws(authToken);
-            return true;
+            return jwtParser.parseClaimsJws(authToken).getBody();
         } catch (SecurityException ex) {
             // Invalid JWT signature
         } catch (MalformedJwtException ex) {
@@ -56,6 +57,6 @@ public class JwtTokenProvider {
         } catch (IllegalArgumentException ex) {
             // JWT claims string is empty
         }
-        return false;
+        return null;
     }
 } 
\ No newline at end of file
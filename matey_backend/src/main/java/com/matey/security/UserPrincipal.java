@@ -7,12 +7,13 @@ import lombok.Getter;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.security.Principal;
 import java.util.Collection;
 import java.util.Collections;
 
 @AllArgsConstructor
 @Getter
-public class UserPrincipal implements UserDetails {
+public class UserPrincipal implements UserDetails, Principal {
     private String id;
     private String username;
     private String email;
@@ -43,6 +44,12 @@ public class UserPrincipal implements UserDetails {
         return username;
     }
 
+    // STOMP sessions are bound to this principal, so user destinations are addressed by id
+    @Override
+    public String getName() {
+        return id;
+    }
+
     @Override
     public boolean isAccountNonExpired() {
         return true;
@@ -3,6 +3,7 @@ package com.matey.service;
 import com.matey.model.User;
 import com.matey.payload.LoginRequest;
 import com.matey.payload.SignUpRequest;
+import com.matey.security.JwtAuthenticationCache;
 import com.matey.security.JwtTokenProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -26,6 +27,9 @@ public class AuthService {
     @Autowired
     private JwtTokenProvider tokenProvider;
 
+    @Autowired
+    private JwtAuthenticationCache authenticationCache;
+
     public String authenticateUser(LoginRequest loginRequest) {
         // Try to find user by email or username
         User user = null;
@@ -80,5 +84,6 @@ public class AuthService {
         // Update password
         user.setPassword(passwordEncoder.encode(newPassword));
         userService.save(user);
+        authenticationCache.evictUser(userId);
     }
 } 
\ No newline at end of file
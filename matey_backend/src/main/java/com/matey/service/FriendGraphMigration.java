@@ -0,0 +1,82 @@
+package com.matey.service;
+
+import com.matey.model.User;
+import com.mongodb.DBRef;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Rewrites users stored with the old {@code friends} and
+ * {@code friendRequests} DBRef arrays into the {@code friendIds} and
+ * {@code friendRequestIds} id arrays, and mirrors each pending request into
+ * the sender's {@code sentFriendRequestIds}. Runs at startup before requests are
+ * served; users already migrated are not matched, so later runs do nothing.
+ */
+@Component
+public class FriendGraphMigration {
+    private static final int BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    public FriendGraphMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        Query query = Query.query(new Criteria().orOperator(
+                Criteria.where("friends").exists(true),
+                Criteria.where("friendRequests").exists(true)))
+            .cursorBatchSize(BATCH_SIZE);
+        query.fields().include("friends", "friendRequests");
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+        int queued = 0;
+        int migrated = 0;
+        try (Stream<Document> users = mongoTemplate.query(User.class).as(Document.class).matching(query).stream()) {
+            for (Document user : (Iterable<Document>) users::iterator) {
+                // Added to whatever ids are already there, so a run cut short can simply be repeated
+                Update update = new Update()
+                    .addToSet("friendIds").each(ids(user, "friends"))
+                    .addToSet("friendRequestIds").each(ids(user, "friendRequests"))
+                    .unset("friends")
+                    .unset("friendRequests");
+                bulk.updateOne(Query.query(Criteria.where("_id").is(user.get("_id"))), update);
+                for (Object senderId : ids(user, "friendRequests")) {
+                    bulk.updateOne(Query.query(Criteria.where("_id").is(senderId)),
+                        new Update().addToSet("sentFriendRequestIds", user.get("_id").toString()));
+                    queued++;
+                }
+                migrated++;
+                if (++queued >= BATCH_SIZE) {
+                    bulk.execute();
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+                    queued = 0;
+                }
+            }
+        }
+        if (queued > 0) {
+            bulk.execute();
+        }
+        if (migrated > 0) {
+            System.out.println("FriendGraphMigration: Migrated friends of " + migrated + " users");
+        }
+    }
+
+    private static Object[] ids(Document user, String field) {
+        return user.getList(field, DBRef.class, List.of()).stream()
+            .map(ref -> ref.getId().toString())
+            .toArray();
+    }
+}
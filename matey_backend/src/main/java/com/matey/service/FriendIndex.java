@@ -0,0 +1,92 @@
+package com.matey.service;
+
+import com.matey.model.User;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Friend ids of the users currently online, so presence can be routed to a
+ * user's friends without a query per change. Friendship is symmetric, so a
+ * user's own friend set is also the set of users who watch them. Entries are
+ * loaded without blocking when a user connects, kept in step by
+ * {@link UserService} when friendships change, and dropped when the user goes
+ * offline.
+ */
+@Component
+public class FriendIndex {
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final Map<String, Set<String>> friends = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FriendIndex(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    // Never queries; a user whose entry is not loaded yet has no friends as far as routing goes
+    public Set<String> friendsOf(String userId) {
+        return friends.getOrDefault(userId, Collections.emptySet());
+    }
+
+    // The loaded entry, or null when the user is not indexed
+    public Set<String> cached(String userId) {
+        return friends.get(userId);
+    }
+
+    public Mono<Set<String>> load(String userId) {
+        Set<String> loaded = friends.get(userId);
+        if (loaded != null) {
+            return Mono.just(loaded);
+        }
+        Query query = Query.query(Criteria.where("_id").is(userId));
+        query.fields().include("friendIds");
+        return mongoTemplate.query(User.class).as(Document.class).matching(query).one()
+            .map(user -> {
+                Set<String> ids = ConcurrentHashMap.newKeySet();
+                ids.addAll(user.getList("friendIds", String.class, List.of()));
+                return ids;
+            })
+            .defaultIfEmpty(ConcurrentHashMap.newKeySet())
+            .map(ids -> {
+                Set<String> raced = friends.putIfAbsent(userId, ids);
+                return raced != null ? raced : ids;
+            });
+    }
+
+    public void evict(String userId) {
+        friends.remove(userId);
+    }
+
+    public void addFriendship(String userId, String friendId) {
+        // Only users already indexed are updated, the others load the new state when they connect
+        Set<String> ofUser = friends.get(userId);
+        if (ofUser != null) {
+            ofUser.add(friendId);
+        }
+        Set<String> ofFriend = friends.get(friendId);
+        if (ofFriend != null) {
+            ofFriend.add(userId);
+        }
+    }
+
+    public void removeFriendship(String userId, String friendId) {
+        Set<String> ofUser = friends.get(userId);
+        if (ofUser != null) {
+            ofUser.remove(friendId);
+        }
+        Set<String> ofFriend = friends.get(friendId);
+        if (ofFriend != null) {
+            ofFriend.remove(userId);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.matey.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs everything that touches one game on that game's mailbox. A mailbox is
+ * scheduled on the shared pool at most once at a time, so tasks for a game run
+ * one after another in submission order and never need a lock, while different
+ * games spread over every core. A game's mailbox exists from {@link #open}
+ * until {@link #release}; tasks submitted outside that window are dropped, so
+ * a late timer or request for a finished game never brings a mailbox back.
+ */
+@Component
+public class GameExecutor {
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ForkJoinPool pool;
+
+    // Tasks drained per scheduling, so one busy game cannot hold a worker indefinitely
+    @Value("${app.gameMailboxBatchSize:32}")
+    private int batchSize;
+
+    public GameExecutor() {
+        // Async mode: FIFO scheduling suits many short, independent mailbox runs
+        this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public void open(String gameId) {
+        mailboxes.computeIfAbsent(gameId, Mailbox::new);
+    }
+
+    public void execute(String gameId, Runnable task) {
+        Mailbox mailbox = mailboxes.get(gameId);
+        if (mailbox != null) {
+            mailbox.enqueue(task);
+        }
+    }
+
+    // Drops the mailbox of a finished game; tasks already queued still run, later ones are dropped
+    public void release(String gameId) {
+        mailboxes.remove(gameId);
+    }
+
+    private class Mailbox implements Runnable {
+        private final String gameId;
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Mailbox(String gameId) {
+            this.gameId = gameId;
+        }
+
+        void enqueue(Runnable task) {
+            queue.add(task);
+            if (scheduled.compareAndSet(false, true)) {
+                pool.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < batchSize; i++) {
+                Runnable task = queue.poll();
+                if (task == null) {
+                    break;
+                }
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    System.out.println("GameExecutor: Task for game " + gameId + " failed: " + e.getMessage());
+                }
+            }
+            scheduled.set(false);
+            // A task may have arrived after the last poll but before the flag was cleared
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+                pool.execute(this);
+            }
+        }
+    }
+}
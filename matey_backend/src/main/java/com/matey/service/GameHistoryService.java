@@ -0,0 +1,69 @@
+package com.matey.service;
+
+import com.matey.payload.CursorPage;
+import com.matey.payload.GameSummary;
+import com.matey.payload.UserProfile;
+import com.matey.repository.GameRepository;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A player's games, newest first, one keyset page at a time. The cursor is the
+ * last game's creation time and id, so a page is an index seek however deep it
+ * is. Usernames come from {@link UsernameIndex} rather than a second query.
+ */
+@Service
+public class GameHistoryService {
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // Before every game, for the first page
+    private static final Instant FIRST_CREATED_AT = Instant.ofEpochMilli(Long.MAX_VALUE);
+    private static final ObjectId FIRST_ID = new ObjectId("ffffffffffffffffffffffff");
+
+    private final GameRepository gameRepository;
+    private final UsernameIndex usernameIndex;
+
+    @Autowired
+    public GameHistoryService(GameRepository gameRepository, UsernameIndex usernameIndex) {
+        this.gameRepository = gameRepository;
+        this.usernameIndex = usernameIndex;
+    }
+
+    public CursorPage<GameSummary> getHistory(String userId, String after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Instant createdBefore = FIRST_CREATED_AT;
+        ObjectId idBefore = FIRST_ID;
+        if (after != null) {
+            // "<createdAt millis>_<id>" of the last game on the previous page
+            String[] parts = after.split("_", 2);
+            try {
+                createdBefore = Instant.ofEpochMilli(Long.parseLong(parts[0]));
+                idBefore = new ObjectId(parts[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        List<GameSummary> games = gameRepository.findHistory(userId, createdBefore, idBefore, Limit.of(pageSize));
+        for (GameSummary game : games) {
+            game.setWhiteUsername(username(game.getWhitePlayerId()));
+            game.setBlackUsername(username(game.getBlackPlayerId()));
+        }
+        String nextCursor = null;
+        if (games.size() == pageSize) {
+            GameSummary last = games.get(pageSize - 1);
+            nextCursor = last.getCreatedAt().toEpochMilli() + "_" + last.getId();
+        }
+        return new CursorPage<>(games, nextCursor);
+    }
+
+    private String username(String userId) {
+        UserProfile user = usernameIndex.get(userId);
+        return user == null ? null : user.getUsername();
+    }
+}
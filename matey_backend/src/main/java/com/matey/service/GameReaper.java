@@ -0,0 +1,89 @@
+package com.matey.service;
+
+import com.matey.model.Game;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Periodic sweep for games nobody will finish, reading stale games through
+ * the partial index on games in progress. Live games idle past the
+ * cutoff with both players gone are ended on their mailbox like any other
+ * abandoned game; games still in progress in Mongo that no live game backs,
+ * e.g. ones whose journal did not survive a restart, are aborted in place.
+ * Together with the disconnect grace timers this keeps the set of games in
+ * progress bounded.
+ */
+@Component
+public class GameReaper {
+    private static final int BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final LiveGameRegistry liveGames;
+    private final GameService gameService;
+
+    @Value("${app.staleGameAfterInMs:3600000}")
+    private long staleAfterInMs;
+
+    @Autowired
+    public GameReaper(MongoTemplate mongoTemplate, LiveGameRegistry liveGames, GameService gameService) {
+        this.mongoTemplate = mongoTemplate;
+        this.liveGames = liveGames;
+        this.gameService = gameService;
+    }
+
+    @Scheduled(fixedDelayString = "${app.staleGameSweepIntervalInMs:60000}")
+    public void sweep() {
+        try {
+            long cutoff = System.currentTimeMillis() - staleAfterInMs;
+            gameService.reapIdleGames(cutoff);
+            int aborted = abortOrphans(Instant.ofEpochMilli(cutoff));
+            if (aborted > 0) {
+                System.out.println("GameReaper: Aborted " + aborted + " stale games");
+            }
+        } catch (Exception e) {
+            System.out.println("GameReaper: Sweep failed: " + e.getMessage());
+        }
+    }
+
+    private int abortOrphans(Instant cutoff) {
+        Query query = Query.query(Criteria.where("status").is("IN_PROGRESS").and("updatedAt").lt(cutoff))
+            .cursorBatchSize(BATCH_SIZE);
+        query.fields().include("_id");
+        List<String> orphans = new ArrayList<>();
+        int aborted = 0;
+        try (Stream<Game> stale = mongoTemplate.stream(query, Game.class)) {
+            for (Game game : (Iterable<Game>) stale::iterator) {
+                if (liveGames.find(game.getId()) == null) {
+                    orphans.add(game.getId());
+                }
+                if (orphans.size() == BATCH_SIZE) {
+                    aborted += abort(orphans);
+                    orphans.clear();
+                }
+            }
+        }
+        if (!orphans.isEmpty()) {
+            aborted += abort(orphans);
+        }
+        return aborted;
+    }
+
+    private int abort(List<String> gameIds) {
+        // Status is matched again so a game that just finished is left alone
+        return (int) mongoTemplate.updateMulti(
+            Query.query(Criteria.where("_id").in(gameIds).and("status").is("IN_PROGRESS")),
+            new Update().set("status", "ABORTED").set("updatedAt", Instant.now()),
+            Game.class).getModifiedCount();
+    }
+}
@@ -1,408 +1,376 @@
 package com.matey.service;
 
+import com.matey.chess.Move;
+import com.matey.chess.MoveGenerator;
+import com.matey.chess.Piece;
+import com.matey.chess.Position;
+import com.matey.chess.Square;
 import com.matey.model.Game;
+import com.matey.model.TimeControl;
 import com.matey.model.User;
-import com.matey.repository.GameRepository;
-import com.matey.repository.UserRepository;
+import com.matey.repository.ReactiveGameRepository;
+import com.matey.repository.ReactiveUserRepository;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.context.annotation.Lazy;
+import reactor.core.publisher.Mono;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 @Service
 public class GameService {
-    private final GameRepository gameRepository;
-    private final UserRepository userRepository;
+    private static final String GAME_UPDATES_QUEUE = "/queue/game-updates";
+
+    private final ReactiveGameRepository gameRepository;
+    private final ReactiveUserRepository userRepository;
+    private final LiveGameRegistry liveGames;
+    private final GameExecutor gameExecutor;
+    private final MatchmakingService matchmaking;
+    private final RatingService ratingService;
+    private final PresenceService presence;
+    private final TimerWheel clockWheel;
     private final SimpMessagingTemplate messagingTemplate;
+    // Game each player is in, and the timer that forfeits it if they stay away
+    private final Map<String, String> gameOfPlayer = new ConcurrentHashMap<>();
+    private final Map<String, TimerWheel.Timeout> graceTimers = new ConcurrentHashMap<>();
 
-    private final Map<String, String> playerQueue = new ConcurrentHashMap<>();
-    private final Map<String, PlayerInfo> onlinePlayers = new ConcurrentHashMap<>();
-    private final Map<String, String> sessionToUser = new ConcurrentHashMap<>();
+    @Value("${app.disconnectGraceInMs:60000}")
+    private long disconnectGraceInMs;
 
     @Autowired
     public GameService(
-        GameRepository gameRepository, 
-        UserRepository userRepository, 
+        ReactiveGameRepository gameRepository,
+        ReactiveUserRepository userRepository,
+        LiveGameRegistry liveGames,
+        GameExecutor gameExecutor,
+        MatchmakingService matchmaking,
+        RatingService ratingService,
+        PresenceService presence,
+        TimerWheel clockWheel,
         @Lazy SimpMessagingTemplate messagingTemplate
     ) {
         this.gameRepository = gameRepository;
         this.userRepository = userRepository;
+        this.liveGames = liveGames;
+        this.gameExecutor = gameExecutor;
+        this.matchmaking = matchmaking;
+        this.ratingService = ratingService;
+        this.presence = presence;
+        this.clockWheel = clockWheel;
         this.messagingTemplate = messagingTemplate;
     }
 
-    static class PlayerInfo {
-        String userId;
-        String username;
-        boolean inGame;
-        Set<String> sessions;
-
-        PlayerInfo(String userId, String username) {
-            this.userId = userId;
-            this.username = username;
-            this.inGame = false;
-            this.sessions = new HashSet<>();
-        }
-
-        Map<String, Object> toMap() {
-            return Map.of(
-                "userId", userId,
-                "username", username,
-                "inGame", inGame
-            );
+    @PostConstruct
+    public void resumeGames() {
+        // Games recovered at startup; a clock that ran out while the server was down flags right away
+        for (LiveGame live : liveGames.all()) {
+            gameOfPlayer.put(live.game.getWhitePlayerId(), live.getId());
+            gameOfPlayer.put(live.game.getBlackPlayerId(), live.getId());
+            gameExecutor.execute(live.getId(), () -> scheduleFlag(live));
+            // Nobody is connected yet, so both players get the usual time to come back
+            startGrace(live.game.getWhitePlayerId());
+            startGrace(live.game.getBlackPlayerId());
         }
     }
 
-    public void handlePlayerConnect(String userId, String username) {
-        System.out.println("GameService: Player connected - userId: " + userId + ", username: " + username);
-        PlayerInfo playerInfo = onlinePlayers.computeIfAbsent(userId, 
-            k -> new PlayerInfo(userId, username));
-        System.out.println("GameService: Updated online players: " + onlinePlayers);
-        broadcastOnlineUsers();
+    public void handlePlayerConnect(String userId) {
+        // Presence follows the user's STOMP sessions, registered when they connect
+        System.out.println("GameService: Player connected - userId: " + userId);
     }
 
     public void handleSessionConnect(String sessionId, String userId, String username) {
         System.out.println("GameService: Session connected - sessionId: " + sessionId + ", userId: " + userId);
-        sessionToUser.put(sessionId, userId);
-        PlayerInfo playerInfo = onlinePlayers.computeIfAbsent(userId, 
-            k -> new PlayerInfo(userId, username));
-        playerInfo.sessions.add(sessionId);
-        System.out.println("GameService: Updated session mapping: " + sessionToUser);
-        System.out.println("GameService: Updated online players: " + onlinePlayers);
-        broadcastOnlineUsers();
+        presence.sessionConnected(sessionId, userId, username);
+        // Ready before the user searches, so matchmaking does not have to look the rating up
+        ratingService.loadRatings(userId).subscribe(
+            ratings -> { },
+            e -> System.out.println("GameService: Could not load ratings of " + userId + ": " + e.getMessage()));
+        TimerWheel.Timeout grace = graceTimers.remove(userId);
+        if (grace != null) {
+            grace.cancel();
+        }
+        // Back in time for a game still running
+        if (gameOfPlayer.containsKey(userId)) {
+            presence.setInGame(userId, true);
+        }
     }
 
     public void handleSessionDisconnect(String sessionId) {
         System.out.println("GameService: Session disconnected - sessionId: " + sessionId);
-        String userId = sessionToUser.remove(sessionId);
+        String userId = presence.sessionDisconnected(sessionId);
         if (userId != null) {
-            PlayerInfo playerInfo = onlinePlayers.get(userId);
-            if (playerInfo != null) {
-                playerInfo.sessions.remove(sessionId);
-                if (playerInfo.sessions.isEmpty()) {
-                    onlinePlayers.remove(userId);
-                    playerQueue.remove(userId);
-                    System.out.println("GameService: Removed player " + userId + " (no active sessions)");
-                }
-            }
-            System.out.println("GameService: Updated online players: " + onlinePlayers);
-            System.out.println("GameService: Updated queue state: " + playerQueue);
-            broadcastOnlineUsers();
+            matchmaking.cancel(userId);
+            ratingService.unloadRatings(userId);
+            startGrace(userId);
+            System.out.println("GameService: Removed player " + userId + " (no active sessions)");
         }
     }
 
     public void handlePlayerDisconnect(String userId) {
-        PlayerInfo playerInfo = onlinePlayers.remove(userId);
-        if (playerInfo != null) {
-            playerInfo.sessions.forEach(sessionToUser::remove);
+        presence.userDisconnected(userId);
+        matchmaking.cancel(userId);
+        startGrace(userId);
+    }
+
+    // A player who left mid-game loses it unless they reconnect within the grace period
+    private void startGrace(String userId) {
+        String gameId = gameOfPlayer.get(userId);
+        if (gameId == null) {
+            return;
+        }
+        TimerWheel.Timeout grace = clockWheel.schedule(System.currentTimeMillis() + disconnectGraceInMs,
+            () -> gameExecutor.execute(gameId, () -> checkAbandoned(gameId, userId)));
+        TimerWheel.Timeout previous = graceTimers.put(userId, grace);
+        if (previous != null) {
+            previous.cancel();
         }
-        playerQueue.remove(userId);
-        broadcastOnlineUsers();
     }
 
-    public void broadcastOnlineUsers() {
-        List<Map<String, Object>> onlineUsersList = onlinePlayers.values().stream()
-            .filter(player -> !player.sessions.isEmpty())
-            .map(PlayerInfo::toMap)
-            .collect(Collectors.toList());
-        
-        System.out.println("GameService: Broadcasting online users: " + onlineUsersList);
-        messagingTemplate.convertAndSend("/topic/online-players", onlineUsersList);
-        messagingTemplate.convertAndSend("/topic/online-count", onlineUsersList.size());
+    // Finishes live games nobody has touched since the cutoff and whose players are both gone
+    public void reapIdleGames(long cutoff) {
+        for (LiveGame live : liveGames.all()) {
+            String whitePlayerId = live.game.getWhitePlayerId();
+            if (live.updatedAt < cutoff && !presence.isOnline(whitePlayerId)
+                && !presence.isOnline(live.game.getBlackPlayerId())) {
+                gameExecutor.execute(live.getId(), () -> checkAbandoned(live.getId(), whitePlayerId));
+            }
+        }
     }
 
-    public void findGame(String userId) {
+    public void findGame(String userId, String timeControl) {
         System.out.println("GameService: Finding game for user: " + userId);
-        System.out.println("GameService: Current queue state: " + playerQueue);
-        System.out.println("GameService: Online players: " + onlinePlayers);
-
-        // Remove any existing queue entry
-        playerQueue.remove(userId);
-
-        // Find an opponent
-        Optional<String> opponent = playerQueue.keySet().stream()
-            .filter(id -> !id.equals(userId))
-            .findFirst();
-
-        System.out.println("GameService: Found opponent: " + opponent);
-
-        if (opponent.isPresent()) {
-            String opponentId = opponent.get();
-            System.out.println("GameService: Creating game between " + userId + " and " + opponentId);
-            playerQueue.remove(opponentId);
-            createGame(userId, opponentId);
-        } else {
-            // Add player to queue
-            System.out.println("GameService: No opponent found, adding " + userId + " to queue");
-            playerQueue.put(userId, "WAITING");
-            System.out.println("GameService: Updated queue state: " + playerQueue);
-        }
+        matchmaking.enqueue(userId, TimeControl.parse(timeControl));
     }
 
     public void cancelSearch(String userId) {
-        playerQueue.remove(userId);
+        matchmaking.cancel(userId);
     }
 
-    public void createGame(String player1Id, String player2Id) {
+    // Nothing here blocks: the save and the user lookups complete on the driver's threads
+    public Mono<Game> createGame(String player1Id, String player2Id, TimeControl timeControl) {
         // Randomly assign colors
         boolean player1IsWhite = new Random().nextBoolean();
         String whitePlayerId = player1IsWhite ? player1Id : player2Id;
         String blackPlayerId = player1IsWhite ? player2Id : player1Id;
 
-        // Create new game
+        // Create new game; saved right away so it has an id, moves are written behind from here on
         Game game = new Game();
         game.setWhitePlayerId(whitePlayerId);
         game.setBlackPlayerId(blackPlayerId);
         game.setStatus("IN_PROGRESS");
-        game = gameRepository.save(game);
+        game.setTimeControl(timeControl.toString());
+        game.setWhiteClockMs(timeControl.getBaseSeconds() * 1000L);
+        game.setBlackClockMs(timeControl.getBaseSeconds() * 1000L);
+        game.setTurnStartedAt(game.getCreatedAt());
+        return gameRepository.save(game).flatMap(saved -> {
+            LiveGame live = liveGames.register(saved);
+            gameOfPlayer.put(whitePlayerId, saved.getId());
+            gameOfPlayer.put(blackPlayerId, saved.getId());
+            gameExecutor.execute(saved.getId(), () -> scheduleFlag(live));
+
+            // Update player statuses
+            presence.setInGame(whitePlayerId, true);
+            presence.setInGame(blackPlayerId, true);
+
+            // Get player usernames, then notify players
+            return Mono.zip(userRepository.findById(whitePlayerId), userRepository.findById(blackPlayerId))
+                .doOnNext(players -> notifyGameStart(saved, players.getT1(), players.getT2()))
+                .thenReturn(saved);
+        });
+    }
 
-        // Update player statuses
-        Optional.ofNullable(onlinePlayers.get(whitePlayerId))
-            .ifPresent(p -> p.inGame = true);
-        Optional.ofNullable(onlinePlayers.get(blackPlayerId))
-            .ifPresent(p -> p.inGame = true);
-        broadcastOnlineUsers();
+    public void handleMove(String gameId, String playerId, Map<String, String> move) {
+        liveGames.get(gameId);
+        gameExecutor.execute(gameId, () -> applyMove(gameId, playerId, move));
+    }
 
-        // Get player usernames
-        User whitePlayer = userRepository.findById(whitePlayerId).orElseThrow();
-        User blackPlayer = userRepository.findById(blackPlayerId).orElseThrow();
+    public void handleResign(String gameId, String playerId) {
+        liveGames.get(gameId);
+        gameExecutor.execute(gameId, () -> applyResign(gameId, playerId));
+    }
 
-        // Notify players
-        notifyGameStart(game, whitePlayer, blackPlayer);
+    public void handleClaimDraw(String gameId, String playerId) {
+        liveGames.get(gameId);
+        gameExecutor.execute(gameId, () -> applyClaimDraw(gameId, playerId));
     }
 
-    public void handleMove(String gameId, String playerId, Map<String, String> move) {
-        Game game = gameRepository.findByIdAndStatus(gameId, "IN_PROGRESS")
-                .orElseThrow(() -> new IllegalStateException("Game not found or not in progress"));
+    // The apply* methods run on the game's mailbox, so they own the game state while they run
+
+    private void applyMove(String gameId, String playerId, Map<String, String> move) {
+        long now = System.currentTimeMillis();
+        LiveGame live = liveGames.get(gameId);
+        Game game = live.game;
 
         // Verify it's the player's turn
-        boolean isWhiteTurn = game.getCurrentPosition().contains(" w ");
+        boolean isWhiteTurn = live.isWhiteToMove();
         if ((isWhiteTurn && !playerId.equals(game.getWhitePlayerId())) ||
             (!isWhiteTurn && !playerId.equals(game.getBlackPlayerId()))) {
             throw new IllegalStateException("Not your turn");
         }
 
-        // Update game state
-        String newPosition = calculateNewPosition(game.getCurrentPosition(), move);
-        game.setCurrentPosition(newPosition);
-        game = gameRepository.save(game);
+        // A move that arrives after the flag fell loses on time, even if the timer has not fired yet
+        if (live.timeLeft(now) <= 0) {
+            flag(live);
+            return;
+        }
+
+        // Validate and apply the move
+        int legalMove = MoveGenerator.findLegalMove(live.position, live.moveBuffer,
+            Square.parse(move.get("from")),
+            Square.parse(move.get("to")),
+            Piece.promotionType(move.get("promotion")));
+        if (legalMove == Move.NONE) {
+            throw new IllegalStateException("Illegal move");
+        }
+        live.punchClock(now);
+        live.position.makeMove(legalMove);
+        liveGames.moveApplied(live, legalMove);
 
         // Notify opponent
         String opponentId = playerId.equals(game.getWhitePlayerId()) 
             ? game.getBlackPlayerId() 
             : game.getWhitePlayerId();
         
-        notifyMove(opponentId, gameId, move);
+        notifyMove(opponentId, gameId, move, live);
+        notifyClock(playerId, live);
 
         // Check for game end conditions
-        checkGameEnd(game);
+        checkGameEnd(live);
+        if ("IN_PROGRESS".equals(game.getStatus())) {
+            scheduleFlag(live);
+        }
     }
 
-    public void handleResign(String gameId, String playerId) {
-        Game game = gameRepository.findByIdAndStatus(gameId, "IN_PROGRESS")
-                .orElseThrow(() -> new IllegalStateException("Game not found or not in progress"));
-
-        game.setStatus("FINISHED");
-        game.setWinner(playerId.equals(game.getWhitePlayerId()) ? "BLACK" : "WHITE");
-        gameRepository.save(game);
-
-        // Update player statuses
-        Optional.ofNullable(onlinePlayers.get(game.getWhitePlayerId()))
-            .ifPresent(p -> p.inGame = false);
-        Optional.ofNullable(onlinePlayers.get(game.getBlackPlayerId()))
-            .ifPresent(p -> p.inGame = false);
-        broadcastOnlineUsers();
-
-        // Notify players
-        notifyGameEnd(game, playerId.equals(game.getWhitePlayerId()) 
-            ? "White resigned" 
-            : "Black resigned");
+    // Runs on the game's mailbox; replaces the timer of the previous turn
+    private void scheduleFlag(LiveGame live) {
+        if (live.flagTimeout != null) {
+            live.flagTimeout.cancel();
+        }
+        String gameId = live.getId();
+        long now = System.currentTimeMillis();
+        long deadline = now + live.timeLeft(now);
+        live.flagTimeout = clockWheel.schedule(deadline, () -> gameExecutor.execute(gameId, () -> checkFlag(gameId)));
     }
 
-    private String calculateNewPosition(String currentPosition, Map<String, String> move) {
-        // Create a new game instance with the current position
-        Game game = new Game();
-        game.setCurrentPosition(currentPosition);
-
-        // Apply the move
-        String from = move.get("from");
-        String to = move.get("to");
-        String promotion = move.get("promotion");
-
-        // Convert algebraic notation to indices
-        int fromFile = from.charAt(0) - 'a';
-        int fromRank = Character.getNumericValue(from.charAt(1)) - 1;
-        int toFile = to.charAt(0) - 'a';
-        int toRank = Character.getNumericValue(to.charAt(1)) - 1;
-
-        // Parse FEN
-        String[] fenParts = currentPosition.split(" ");
-        String[] ranks = fenParts[0].split("/");
-        char[][] board = new char[8][8];
-
-        // Convert FEN to 2D array
-        for (int rank = 0; rank < 8; rank++) {
-            int file = 0;
-            for (int i = 0; i < ranks[7-rank].length() && file < 8; i++) {
-                char c = ranks[7-rank].charAt(i);
-                if (Character.isDigit(c)) {
-                    int emptySquares = Character.getNumericValue(c);
-                    for (int j = 0; j < emptySquares; j++) {
-                        board[rank][file++] = ' ';
-                    }
-                } else {
-                    board[rank][file++] = c;
-                }
-            }
+    private void checkFlag(String gameId) {
+        LiveGame live = liveGames.find(gameId);
+        if (live == null) {
+            return;
+        }
+        if (live.timeLeft(System.currentTimeMillis()) <= 0) {
+            flag(live);
+        } else {
+            // Fired for a turn that has since ended
+            scheduleFlag(live);
         }
+    }
 
-        // Make the move
-        char piece = board[fromRank][fromFile];
-        board[fromRank][fromFile] = ' ';
-        
-        // Handle promotion
-        if (promotion != null && !promotion.isEmpty() && 
-            ((piece == 'P' && toRank == 7) || (piece == 'p' && toRank == 0))) {
-            board[toRank][toFile] = Character.isUpperCase(piece) ? 
-                promotion.toUpperCase().charAt(0) : 
-                promotion.toLowerCase().charAt(0);
+    // Runs on the game's mailbox once the player's grace period is over
+    private void checkAbandoned(String gameId, String userId) {
+        LiveGame live = liveGames.find(gameId);
+        if (live == null || presence.isOnline(userId)) {
+            return;
+        }
+        Game game = live.game;
+        boolean white = userId.equals(game.getWhitePlayerId());
+        String opponentId = white ? game.getBlackPlayerId() : game.getWhitePlayerId();
+        if (live.ply() < 2) {
+            finishGame(live, null, white ? "Game aborted, White left before it began" : "Game aborted, Black left before it began");
+        } else if (!presence.isOnline(opponentId)) {
+            finishGame(live, "DRAW", "Draw, both players left the game");
         } else {
-            board[toRank][toFile] = piece;
+            finishGame(live, white ? "BLACK" : "WHITE", white ? "Black wins, White left the game" : "White wins, Black left the game");
         }
+    }
 
-        // Convert back to FEN
-        StringBuilder newPosition = new StringBuilder();
-        for (int rank = 7; rank >= 0; rank--) {
-            int emptyCount = 0;
-            for (int file = 0; file < 8; file++) {
-                if (board[rank][file] == ' ') {
-                    emptyCount++;
-                } else {
-                    if (emptyCount > 0) {
-                        newPosition.append(emptyCount);
-                        emptyCount = 0;
-                    }
-                    newPosition.append(board[rank][file]);
-                }
-            }
-            if (emptyCount > 0) {
-                newPosition.append(emptyCount);
-            }
-            if (rank > 0) {
-                newPosition.append('/');
-            }
+    // The side to move ran out of time; a lone king cannot win on time
+    private void flag(LiveGame live) {
+        boolean whiteFlagged = live.isWhiteToMove();
+        int winnerColor = whiteFlagged ? Piece.BLACK : Piece.WHITE;
+        if (Long.bitCount(live.position.pieces(winnerColor)) == 1) {
+            finishGame(live, "DRAW", whiteFlagged
+                ? "Draw, White ran out of time and Black cannot checkmate"
+                : "Draw, Black ran out of time and White cannot checkmate");
+        } else {
+            finishGame(live, whiteFlagged ? "BLACK" : "WHITE",
+                whiteFlagged ? "Black wins on time" : "White wins on time");
         }
+    }
 
-        // Update turn
-        boolean isWhiteTurn = fenParts[1].equals("w");
-        newPosition.append(" ").append(isWhiteTurn ? "b" : "w");
+    private void applyResign(String gameId, String playerId) {
+        LiveGame live = liveGames.get(gameId);
+        Game game = live.game;
 
-        // Append remaining FEN parts (castling rights, en passant, etc.)
-        for (int i = 2; i < fenParts.length; i++) {
-            newPosition.append(" ").append(fenParts[i]);
+        if (!playerId.equals(game.getWhitePlayerId()) && !playerId.equals(game.getBlackPlayerId())) {
+            throw new IllegalStateException("Not a player in this game");
         }
-
-        return newPosition.toString();
+        boolean white = playerId.equals(game.getWhitePlayerId());
+        finishGame(live, white ? "BLACK" : "WHITE", white ? "White resigned" : "Black resigned");
     }
 
-    private void checkGameEnd(Game game) {
-        String[] fenParts = game.getCurrentPosition().split(" ");
-        String position = fenParts[0];
-        boolean isWhiteTurn = fenParts[1].equals("w");
-
-        // Check for insufficient material
-        if (hasInsufficientMaterial(position)) {
-            game.setStatus("FINISHED");
-            game.setWinner("DRAW");
-            gameRepository.save(game);
-            notifyGameEnd(game, "Draw by insufficient material");
-            return;
-        }
+    private void applyClaimDraw(String gameId, String playerId) {
+        LiveGame live = liveGames.get(gameId);
+        Game game = live.game;
 
-        // Check for stalemate or checkmate
-        if (isStalemate(position, isWhiteTurn)) {
-            game.setStatus("FINISHED");
-            game.setWinner("DRAW");
-            gameRepository.save(game);
-            notifyGameEnd(game, "Draw by stalemate");
-        } else if (isCheckmate(position, isWhiteTurn)) {
-            game.setStatus("FINISHED");
-            game.setWinner(isWhiteTurn ? "BLACK" : "WHITE");
-            gameRepository.save(game);
-            notifyGameEnd(game, isWhiteTurn ? "Black wins by checkmate" : "White wins by checkmate");
+        if (!playerId.equals(game.getWhitePlayerId()) && !playerId.equals(game.getBlackPlayerId())) {
+            throw new IllegalStateException("Not a player in this game");
+        }
+        if (live.position.isThreefoldRepetition()) {
+            finishGame(live, "DRAW", "Draw by threefold repetition");
+        } else if (live.position.isFiftyMoveRule()) {
+            finishGame(live, "DRAW", "Draw by 50-move rule");
+        } else {
+            throw new IllegalStateException("No draw can be claimed in this position");
         }
     }
 
-    private boolean hasInsufficientMaterial(String position) {
-        // Count pieces
-        int whitePieces = 0, blackPieces = 0;
-        int whiteBishops = 0, blackBishops = 0;
-        int whiteKnights = 0, blackKnights = 0;
-
-        for (char c : position.toCharArray()) {
-            switch (c) {
-                case 'P':
-                case 'p':
-                case 'Q':
-                case 'q':
-                case 'R':
-                case 'r':
-                    return false; // These pieces are sufficient for mate
-                case 'B':
-                    whiteBishops++;
-                    whitePieces++;
-                    break;
-                case 'b':
-                    blackBishops++;
-                    blackPieces++;
-                    break;
-                case 'N':
-                    whiteKnights++;
-                    whitePieces++;
-                    break;
-                case 'n':
-                    blackKnights++;
-                    blackPieces++;
-                    break;
-                case 'K':
-                    whitePieces++;
-                    break;
-                case 'k':
-                    blackPieces++;
-                    break;
+    private void checkGameEnd(LiveGame live) {
+        Position position = live.position;
+        boolean isWhiteTurn = live.isWhiteToMove();
+
+        // Check for checkmate or stalemate
+        if (!MoveGenerator.hasLegalMove(position, live.moveBuffer)) {
+            if (position.isInCheck()) {
+                finishGame(live, isWhiteTurn ? "BLACK" : "WHITE",
+                    isWhiteTurn ? "Black wins by checkmate" : "White wins by checkmate");
+            } else {
+                finishGame(live, "DRAW", "Draw by stalemate");
             }
+        } else if (position.isInsufficientMaterial()) {
+            finishGame(live, "DRAW", "Draw by insufficient material");
+        } else if (position.isFivefoldRepetition()) {
+            finishGame(live, "DRAW", "Draw by fivefold repetition");
+        } else if (position.isSeventyFiveMoveRule()) {
+            finishGame(live, "DRAW", "Draw by 75-move rule");
         }
+    }
 
-        // King vs King
-        if (whitePieces == 1 && blackPieces == 1) {
-            return true;
-        }
-
-        // King and Bishop vs King
-        if ((whitePieces == 2 && whiteBishops == 1 && blackPieces == 1) ||
-            (blackPieces == 2 && blackBishops == 1 && whitePieces == 1)) {
-            return true;
+    // A null winner aborts the game, which is then left unrated
+    private void finishGame(LiveGame live, String winner, String reason) {
+        Game game = live.game;
+        if (live.flagTimeout != null) {
+            live.flagTimeout.cancel();
         }
+        game.setStatus(winner == null ? "ABORTED" : "FINISHED");
+        game.setWinner(winner);
+        liveGames.finish(live);
+        ratingService.gameFinished(game);
 
-        // King and Knight vs King
-        if ((whitePieces == 2 && whiteKnights == 1 && blackPieces == 1) ||
-            (blackPieces == 2 && blackKnights == 1 && whitePieces == 1)) {
-            return true;
+        // Update player statuses
+        for (String playerId : List.of(game.getWhitePlayerId(), game.getBlackPlayerId())) {
+            gameOfPlayer.remove(playerId, game.getId());
+            TimerWheel.Timeout grace = graceTimers.remove(playerId);
+            if (grace != null) {
+                grace.cancel();
+            }
+            presence.setInGame(playerId, false);
         }
 
-        return false;
-    }
-
-    private boolean isStalemate(String position, boolean isWhiteTurn) {
-    // to be added later, now not even the connection is working so yeah
-        return false;
-    }
-
-    private boolean isCheckmate(String position, boolean isWhiteTurn) {
-      // to be added later, now not even the connection is working so yeah
-        return false;
+        // Notify players
+        notifyGameEnd(game, reason);
     }
 
     private void notifyGameStart(Game game, User whitePlayer, User blackPlayer) {
@@ -415,12 +383,14 @@ public class GameService {
             "type", "GAME_STARTED",
             "gameId", game.getId(),
             "isWhite", true,
-            "opponent", blackPlayer.getUsername()
+            "opponent", blackPlayer.getUsername(),
+            "whiteClockMs", game.getWhiteClockMs(),
+            "blackClockMs", game.getBlackClockMs()
         );
         System.out.println("GameService: Sending message to white player: " + whiteMessage);
         messagingTemplate.convertAndSendToUser(
             whitePlayer.getId(),
-            "/user/queue/game-updates",
+            GAME_UPDATES_QUEUE,
             whiteMessage
         );
 
@@ -429,25 +399,43 @@ public class GameService {
             "type", "GAME_STARTED",
             "gameId", game.getId(),
             "isWhite", false,
-            "opponent", whitePlayer.getUsername()
+            "opponent", whitePlayer.getUsername(),
+            "whiteClockMs", game.getWhiteClockMs(),
+            "blackClockMs", game.getBlackClockMs()
         );
         System.out.println("GameService: Sending message to black player: " + blackMessage);
         messagingTemplate.convertAndSendToUser(
             blackPlayer.getId(),
-            "/user/queue/game-updates",
+            GAME_UPDATES_QUEUE,
             blackMessage
         );
     }
 
-    private void notifyMove(String playerId, String gameId, Map<String, String> move) {
+    private void notifyMove(String playerId, String gameId, Map<String, String> move, LiveGame live) {
         System.out.println("GameService: Notifying move to player: " + playerId);
         messagingTemplate.convertAndSendToUser(
             playerId,
-            "/user/queue/game-updates",
+            GAME_UPDATES_QUEUE,
             Map.of(
                 "type", "MOVE_MADE",
                 "gameId", gameId,
-                "move", move
+                "move", move,
+                "whiteClockMs", live.whiteClockMs,
+                "blackClockMs", live.blackClockMs
+            )
+        );
+    }
+
+    // Tells the mover where both clocks stand once their move is in
+    private void notifyClock(String playerId, LiveGame live) {
+        messagingTemplate.convertAndSendToUser(
+            playerId,
+            GAME_UPDATES_QUEUE,
+            Map.of(
+                "type", "CLOCK_UPDATED",
+                "gameId", live.getId(),
+                "whiteClockMs", live.whiteClockMs,
+                "blackClockMs", live.blackClockMs
             )
         );
     }
@@ -462,13 +450,13 @@ public class GameService {
 
         messagingTemplate.convertAndSendToUser(
             game.getWhitePlayerId(),
-            "/user/queue/game-updates",
+            GAME_UPDATES_QUEUE,
             message
         );
 
         messagingTemplate.convertAndSendToUser(
             game.getBlackPlayerId(),
-            "/user/queue/game-updates",
+            GAME_UPDATES_QUEUE,
             message
         );
     }
@@ -0,0 +1,87 @@
+package com.matey.service;
+
+import com.matey.chess.MoveGenerator;
+import com.matey.chess.MoveList;
+import com.matey.chess.Piece;
+import com.matey.chess.Position;
+import com.matey.journal.MoveJournal;
+import com.matey.model.Game;
+import com.matey.model.TimeControl;
+import java.time.Instant;
+
+// In-memory state of an active game. Only touched from the game's GameExecutor mailbox; the Game
+// document is brought up to date with the position when a snapshot is taken for persistence.
+class LiveGame {
+    final Game game;
+    final long journalKey;
+    final Position position;
+    final int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+    // Null when the game's earlier moves are unknown, so no partial list is ever stored
+    final MoveList moves;
+    final long incrementMs;
+    long updatedAt;
+    int unflushedMoves;
+    // Clocks as of turnStartedAt; only the side to move's is running
+    long whiteClockMs;
+    long blackClockMs;
+    long turnStartedAt;
+    TimerWheel.Timeout flagTimeout;
+
+    LiveGame(Game game, Position position, MoveList moves) {
+        this.game = game;
+        this.journalKey = MoveJournal.gameKey(game.getId());
+        this.position = position;
+        this.moves = moves;
+        this.updatedAt = System.currentTimeMillis();
+        TimeControl timeControl = TimeControl.parse(game.getTimeControl());
+        this.incrementMs = timeControl.getIncrementSeconds() * 1000L;
+        // Games stored before clocks existed start with full clocks
+        long baseMs = timeControl.getBaseSeconds() * 1000L;
+        this.whiteClockMs = game.getWhiteClockMs() != null ? game.getWhiteClockMs() : baseMs;
+        this.blackClockMs = game.getBlackClockMs() != null ? game.getBlackClockMs() : baseMs;
+        this.turnStartedAt = game.getTurnStartedAt() != null
+            ? game.getTurnStartedAt().toEpochMilli()
+            : game.getCreatedAt().toEpochMilli();
+    }
+
+    String getId() {
+        return game.getId();
+    }
+
+    // Half-moves played, derived from the move counters so it survives a FEN round trip
+    int ply() {
+        return (position.fullmoveNumber() - 1) * 2 + position.sideToMove();
+    }
+
+    boolean isWhiteToMove() {
+        return position.sideToMove() == Piece.WHITE;
+    }
+
+    // Time the side to move has left at the given instant; zero or less means the flag has fallen
+    long timeLeft(long now) {
+        long clock = isWhiteToMove() ? whiteClockMs : blackClockMs;
+        return clock - (now - turnStartedAt);
+    }
+
+    // Stops the mover's clock before their move is made, adding the increment, and starts the opponent's
+    void punchClock(long now) {
+        long left = timeLeft(now) + incrementMs;
+        if (isWhiteToMove()) {
+            whiteClockMs = left;
+        } else {
+            blackClockMs = left;
+        }
+        turnStartedAt = now;
+    }
+
+    Game snapshot() {
+        Game copy = new Game(game);
+        copy.setWhiteClockMs(whiteClockMs);
+        copy.setBlackClockMs(blackClockMs);
+        copy.setTurnStartedAt(Instant.ofEpochMilli(turnStartedAt));
+        copy.setMoves(moves == null ? null : moves.encode());
+        copy.setCurrentPosition(position.toFen());
+        copy.setUpdatedAt(Instant.ofEpochMilli(updatedAt));
+        return copy;
+    }
+}
@@ -0,0 +1,302 @@
+package com.matey.service;
+
+import com.matey.chess.Move;
+import com.matey.chess.MoveGenerator;
+import com.matey.chess.MoveList;
+import com.matey.chess.Position;
+import com.matey.journal.MoveJournal;
+import com.matey.model.Game;
+import com.matey.repository.GameRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Authoritative in-memory state of every game in progress. Moves are applied
+ * here and written behind to the games collection: dirty games are flushed in
+ * one batch every few hundred milliseconds, early once a game has collected
+ * enough unflushed moves, and immediately when it ends. Snapshots are taken on
+ * the game's own {@link GameExecutor} mailbox and written with the reactive
+ * driver, one bulk write in flight at a time, so a later snapshot of a game is
+ * never overwritten by an earlier one and no thread waits on Mongo.
+ *
+ * Every move and result is also appended to the local {@link MoveJournal}
+ * before it is acknowledged: after a crash of the process the last flushed
+ * state is loaded and the journal replayed on top. The append only reaches the
+ * page cache, so an OS crash or power loss can still drop the moves of the last
+ * journal force interval that Mongo had not received.
+ */
+@Component
+public class LiveGameRegistry {
+    private final GameRepository gameRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MoveJournal journal;
+    private final GameExecutor gameExecutor;
+    // Winner values in the order they are encoded in journal END records; no winner means aborted
+    private static final String[] RESULTS = {"DRAW", "WHITE", "BLACK", null};
+
+    private final Map<String, LiveGame> games = new ConcurrentHashMap<>();
+    private final Set<LiveGame> dirty = ConcurrentHashMap.newKeySet();
+    private final Queue<Flush> pending = new ConcurrentLinkedQueue<>();
+    // Set while a bulk write is in flight; one at a time keeps each game's snapshots in order
+    private final AtomicBoolean saving = new AtomicBoolean();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "game-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.gameFlushIntervalInMs:500}")
+    private long flushIntervalInMs;
+
+    @Value("${app.gameFlushAfterMoves:20}")
+    private int flushAfterMoves;
+
+    @Autowired
+    public LiveGameRegistry(
+        GameRepository gameRepository,
+        ReactiveMongoTemplate mongoTemplate,
+        MoveJournal journal,
+        GameExecutor gameExecutor
+    ) {
+        this.gameRepository = gameRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.journal = journal;
+        this.gameExecutor = gameExecutor;
+    }
+
+    private record Flush(Game game, long journalKey, int ply) {
+    }
+
+    @PostConstruct
+    public void start() {
+        // Recover games that were in progress when the last instance stopped
+        Map<Long, LiveGame> byJournalKey = new HashMap<>();
+        int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+        for (Game game : gameRepository.findByStatus("IN_PROGRESS")) {
+            LiveGame live = restore(game, moveBuffer);
+            gameExecutor.open(game.getId());
+            games.put(game.getId(), live);
+            byJournalKey.put(live.journalKey, live);
+        }
+        int[] replayed = new int[1];
+        journal.replay((gameKey, ply, kind, data, timestamp) -> {
+            LiveGame live = byJournalKey.get(gameKey);
+            if (live == null) {
+                // Finished and flushed before the restart
+                journal.markFlushed(gameKey, ply);
+            } else if (replayRecord(live, ply, kind, data, timestamp)) {
+                replayed[0]++;
+            }
+        });
+        System.out.println("LiveGameRegistry: Recovered " + games.size() + " games in progress, replayed "
+            + replayed[0] + " journal records");
+        flusher.scheduleWithFixedDelay(this::flushDirty, flushIntervalInMs, flushIntervalInMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(10, TimeUnit.SECONDS);
+        // Let the write in flight finish, then write what is left
+        awaitSave();
+        flushPending();
+        awaitSave();
+    }
+
+    private void awaitSave() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (saving.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    // Replays the stored moves so repetitions are still detected. A game without a complete
+    // move list falls back to its FEN and stops keeping one, rather than storing one that starts mid-game
+    static LiveGame restore(Game game, int[] moveBuffer) {
+        MoveList moves = MoveList.decode(game.getMoves());
+        Position position = Position.startingPosition();
+        if (moves.replay(position, moveBuffer) == moves.size()
+                && position.toFen().equals(game.getCurrentPosition())) {
+            return new LiveGame(game, position, moves);
+        }
+        System.out.println("LiveGameRegistry: Game " + game.getId() + " has no complete move list, restoring from FEN");
+        return new LiveGame(game, Position.fromFen(game.getCurrentPosition()), null);
+    }
+
+    // Applies a journal record on top of the flushed state; records the flush already covers are skipped
+    private boolean replayRecord(LiveGame live, int ply, int kind, int data, long timestamp) {
+        if (!"IN_PROGRESS".equals(live.game.getStatus())) {
+            return false;
+        }
+        if (kind == MoveJournal.MOVE && ply == live.ply() + 1) {
+            int move = MoveGenerator.findLegalMove(live.position, live.moveBuffer,
+                Move.from(data), Move.to(data), Move.promotionType(data));
+            if (move == Move.NONE) {
+                System.out.println("LiveGameRegistry: Journal move " + Move.toUci(data) + " is illegal in game " + live.getId());
+                return false;
+            }
+            live.punchClock(timestamp);
+            live.position.makeMove(move);
+            if (live.moves != null) {
+                live.moves.add(move);
+            }
+            live.updatedAt = timestamp;
+            dirty.add(live);
+            return true;
+        }
+        if (kind == MoveJournal.END && ply == live.ply()) {
+            live.game.setStatus(RESULTS[data] == null ? "ABORTED" : "FINISHED");
+            live.game.setWinner(RESULTS[data]);
+            live.updatedAt = timestamp;
+            finish(live);
+            return true;
+        }
+        return false;
+    }
+
+    public LiveGame register(Game game) {
+        LiveGame live = new LiveGame(game, Position.fromFen(game.getCurrentPosition()), new MoveList());
+        gameExecutor.open(game.getId());
+        games.put(game.getId(), live);
+        return live;
+    }
+
+    public LiveGame get(String gameId) {
+        LiveGame live = games.get(gameId);
+        if (live == null) {
+            throw new IllegalStateException("Game not found or not in progress");
+        }
+        return live;
+    }
+
+    // Null once the game has finished
+    public LiveGame find(String gameId) {
+        return games.get(gameId);
+    }
+
+    public Collection<LiveGame> all() {
+        return games.values();
+    }
+
+    public int size() {
+        return games.size();
+    }
+
+    // Runs on the game's mailbox
+    public void moveApplied(LiveGame live, int move) {
+        if (live.moves != null) {
+            live.moves.add(move);
+        }
+        journal.appendMove(live.journalKey, live.ply(), Move.packed(move));
+        live.updatedAt = System.currentTimeMillis();
+        dirty.add(live);
+        if (++live.unflushedMoves >= flushAfterMoves) {
+            snapshot(live);
+            flusher.execute(this::flushPending);
+        }
+    }
+
+    // Runs on the game's mailbox, after the final status has been set
+    public void finish(LiveGame live) {
+        journal.appendEnd(live.journalKey, live.ply(), Arrays.asList(RESULTS).indexOf(live.game.getWinner()));
+        live.updatedAt = Math.max(live.updatedAt, System.currentTimeMillis());
+        games.remove(live.getId());
+        dirty.remove(live);
+        snapshot(live);
+        flusher.execute(this::flushPending);
+        gameExecutor.release(live.getId());
+    }
+
+    private void snapshot(LiveGame live) {
+        live.unflushedMoves = 0;
+        pending.add(new Flush(live.snapshot(), live.journalKey, live.ply()));
+    }
+
+    // Asks each dirty game for a snapshot on its own mailbox; they are written on the next run
+    private void flushDirty() {
+        for (LiveGame live : dirty) {
+            dirty.remove(live);
+            gameExecutor.execute(live.getId(), () -> snapshot(live));
+        }
+        flushPending();
+    }
+
+    private void flushPending() {
+        if (!saving.compareAndSet(false, true)) {
+            // The write in flight picks these up when it completes
+            return;
+        }
+        // Keep only the newest snapshot per game, an unordered bulk write could apply two in either order
+        Map<String, Flush> batch = new LinkedHashMap<>();
+        Flush flush;
+        while ((flush = pending.poll()) != null) {
+            batch.put(flush.game().getId(), flush);
+        }
+        if (batch.isEmpty()) {
+            saving.set(false);
+        } else {
+            save(new ArrayList<>(batch.values()));
+        }
+    }
+
+    // Non-blocking: the result is handled on the driver's thread and the flusher moves on
+    private void save(List<Flush> batch) {
+        // One bulk write per batch; saveAll would issue a round trip per document
+        ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Game.class);
+        for (Flush flush : batch) {
+            bulk.replaceOne(Query.query(Criteria.where("_id").is(flush.game().getId())), flush.game());
+        }
+        bulk.execute().subscribe(
+            result -> {
+                for (Flush flush : batch) {
+                    journal.markFlushed(flush.journalKey(), flush.ply());
+                }
+            },
+            e -> {
+                System.out.println("LiveGameRegistry: Failed to flush " + batch.size() + " games: " + e.getMessage());
+                for (Flush flush : batch) {
+                    LiveGame live = games.get(flush.game().getId());
+                    if (live != null) {
+                        // Still live, the next tick takes a fresh snapshot
+                        dirty.add(live);
+                    } else {
+                        // Finished, so this snapshot is the last one there will be; retry it as is
+                        pending.add(flush);
+                    }
+                }
+                saving.set(false);
+            },
+            this::saved);
+    }
+
+    private void saved() {
+        saving.set(false);
+        if (!pending.isEmpty() && !flusher.isShutdown()) {
+            flusher.execute(this::flushPending);
+        }
+    }
+}
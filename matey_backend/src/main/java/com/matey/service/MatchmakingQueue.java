@@ -0,0 +1,98 @@
+package com.matey.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+// Searching players per pool (time control), each pool ordered by rating. Not thread safe;
+// MatchmakingService owns it from its tick thread.
+class MatchmakingQueue {
+    static final class Ticket {
+        final String userId;
+        final String pool;
+        final int rating;
+        final long enqueuedAt;
+        final long sortKey;
+
+        Ticket(String userId, String pool, int rating, long enqueuedAt, long sequence) {
+            this.userId = userId;
+            this.pool = pool;
+            this.rating = rating;
+            this.enqueuedAt = enqueuedAt;
+            // Rating in the high bits, arrival order breaks ties
+            this.sortKey = ((long) rating << 32) | (sequence & 0xFFFFFFFFL);
+        }
+    }
+
+    private final Map<String, TreeMap<Long, Ticket>> pools = new HashMap<>();
+    private final Map<String, Ticket> byUser = new HashMap<>();
+    private final int initialWindow;
+    private final int widenPerSecond;
+    private final int maxWindow;
+    private long sequence;
+
+    MatchmakingQueue(int initialWindow, int widenPerSecond, int maxWindow) {
+        this.initialWindow = initialWindow;
+        this.widenPerSecond = widenPerSecond;
+        this.maxWindow = maxWindow;
+    }
+
+    void add(String userId, String pool, int rating, long now) {
+        remove(userId);
+        Ticket ticket = new Ticket(userId, pool, rating, now, sequence++);
+        pools.computeIfAbsent(pool, k -> new TreeMap<>()).put(ticket.sortKey, ticket);
+        byUser.put(userId, ticket);
+    }
+
+    Ticket remove(String userId) {
+        Ticket ticket = byUser.remove(userId);
+        if (ticket != null) {
+            TreeMap<Long, Ticket> pool = pools.get(ticket.pool);
+            pool.remove(ticket.sortKey);
+            if (pool.isEmpty()) {
+                pools.remove(ticket.pool);
+            }
+        }
+        return ticket;
+    }
+
+    int size() {
+        return byUser.size();
+    }
+
+    // Rating difference a ticket accepts; grows the longer the player has waited
+    int window(Ticket ticket, long now) {
+        long widened = initialWindow + (now - ticket.enqueuedAt) * widenPerSecond / 1000;
+        return (int) Math.min(widened, maxWindow);
+    }
+
+    /**
+     * Pairs every pool in one pass. Walking a pool in rating order, each player
+     * is matched with the nearest unmatched player below them when the gap fits
+     * inside both players' windows.
+     */
+    void pair(long now, BiConsumer<Ticket, Ticket> onPair) {
+        List<Ticket> matched = new ArrayList<>();
+        for (TreeMap<Long, Ticket> pool : pools.values()) {
+            Ticket waiting = null;
+            for (Ticket ticket : pool.values()) {
+                if (waiting != null
+                        && ticket.rating - waiting.rating <= Math.min(window(waiting, now), window(ticket, now))) {
+                    matched.add(waiting);
+                    matched.add(ticket);
+                    waiting = null;
+                } else {
+                    waiting = ticket;
+                }
+            }
+        }
+        for (int i = 0; i < matched.size(); i += 2) {
+            remove(matched.get(i).userId);
+            remove(matched.get(i + 1).userId);
+            onPair.accept(matched.get(i), matched.get(i + 1));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.matey.service;
+
+import com.matey.model.Rating;
+import com.matey.model.TimeControl;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pairs searching players on a fixed tick. Searches and cancels are queued
+ * and applied by the tick thread, which owns the rating-ordered queue, so two
+ * players searching at once can never be handed the same opponent. Each tick
+ * pairs every pool in one pass and starts the new games without blocking, so
+ * Mongo writes never hold up the tick.
+ */
+@Service
+public class MatchmakingService {
+    private final GameService gameService;
+    private final RatingService ratingService;
+    private final MeterRegistry meterRegistry;
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger searching = new AtomicInteger();
+    // Searches waiting for the player's ratings to load; cancelling one drops it before it is queued
+    private final Map<String, Object> loading = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService matchmaker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "matchmaker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private MatchmakingQueue queue;
+
+    @Value("${app.matchmakingTickInMs:250}")
+    private long tickInMs;
+
+    @Value("${app.matchmakingInitialWindow:50}")
+    private int initialWindow;
+
+    @Value("${app.matchmakingWindowGrowthPerSecond:25}")
+    private int windowGrowthPerSecond;
+
+    @Value("${app.matchmakingMaxWindow:800}")
+    private int maxWindow;
+
+    @Autowired
+    public MatchmakingService(@Lazy GameService gameService, RatingService ratingService, MeterRegistry meterRegistry) {
+        this.gameService = gameService;
+        this.ratingService = ratingService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new MatchmakingQueue(initialWindow, windowGrowthPerSecond, maxWindow);
+        meterRegistry.gauge("matey.matchmaking.searching", searching);
+        matchmaker.scheduleWithFixedDelay(this::tick, tickInMs, tickInMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        matchmaker.shutdownNow();
+    }
+
+    // Neither the caller nor the tick waits on Mongo: ratings are normally loaded when the user connects
+    public void enqueue(String userId, TimeControl timeControl) {
+        String category = timeControl.getCategory();
+        long now = System.currentTimeMillis();
+        Rating rating = ratingService.getLoadedRating(userId, category);
+        if (rating != null) {
+            add(userId, timeControl, rating, now);
+            return;
+        }
+        Object search = new Object();
+        loading.put(userId, search);
+        ratingService.loadRatings(userId).subscribe(
+            ratings -> {
+                // Null if the user disconnected meanwhile, which cancelled the search anyway
+                Rating loaded = ratingService.getLoadedRating(userId, category);
+                if (loading.remove(userId, search) && loaded != null) {
+                    add(userId, timeControl, loaded, now);
+                }
+            },
+            e -> {
+                loading.remove(userId, search);
+                System.out.println("MatchmakingService: Could not load ratings of " + userId + ": " + e.getMessage());
+            });
+    }
+
+    private void add(String userId, TimeControl timeControl, Rating rating, long now) {
+        int value = (int) Math.round(rating.getRating());
+        commands.add(() -> queue.add(userId, timeControl.toString(), value, now));
+    }
+
+    public void cancel(String userId) {
+        loading.remove(userId);
+        commands.add(() -> queue.remove(userId));
+    }
+
+    private void tick() {
+        try {
+            Runnable command;
+            while ((command = commands.poll()) != null) {
+                command.run();
+            }
+
+            long now = System.currentTimeMillis();
+            queue.pair(now, (first, second) -> {
+                Timer timeToMatch = meterRegistry.timer("matey.matchmaking.time_to_match", "timeControl", first.pool);
+                timeToMatch.record(now - first.enqueuedAt, TimeUnit.MILLISECONDS);
+                timeToMatch.record(now - second.enqueuedAt, TimeUnit.MILLISECONDS);
+                TimeControl timeControl = TimeControl.parse(first.pool);
+                startGame(first.userId, second.userId, timeControl);
+            });
+            searching.set(queue.size());
+        } catch (Exception e) {
+            System.out.println("MatchmakingService: Tick failed: " + e.getMessage());
+        }
+    }
+
+    // Game creation is non-blocking, so the tick only subscribes and moves on
+    private void startGame(String player1Id, String player2Id, TimeControl timeControl) {
+        System.out.println("MatchmakingService: Creating game between " + player1Id + " and " + player2Id);
+        gameService.createGame(player1Id, player2Id, timeControl).subscribe(
+            game -> { },
+            e -> System.out.println("MatchmakingService: Could not create game: " + e.getMessage()));
+    }
+}
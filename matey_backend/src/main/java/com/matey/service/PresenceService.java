@@ -0,0 +1,221 @@
+package com.matey.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Who is online and whether they are playing, delivered to each user's online
+ * friends on /user/queue/presence. Changes are not published as they happen:
+ * the users they touch are noted in a lock-free set and a publisher tick
+ * compares each against what was last published, then sends every recipient
+ * one frame with all of their friends' changes. Traffic follows friend list
+ * size rather than the number of users online, and a reconnect storm costs at
+ * most one frame per recipient and one online count per tick.
+ *
+ * Frames are versioned per recipient. Clients load a snapshot of their online
+ * friends once, then apply frames newer than its version; a gap in the
+ * versions means a frame was missed and they load a new one.
+ */
+@Service
+public class PresenceService {
+    public static final String PRESENCE_QUEUE = "/queue/presence";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final FriendIndex friendIndex;
+
+    private final SessionRegistry sessions = new SessionRegistry();
+
+    // Users and friendships changed since the last tick
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+    private final Queue<FriendshipChange> friendshipChanges = new ConcurrentLinkedQueue<>();
+
+    // What clients have been told and each recipient's frame version, guarded by published
+    private final Map<String, Presence> published = new HashMap<>();
+    private final Map<String, Long> versions = new HashMap<>();
+
+    private final ScheduledExecutorService publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "presence-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.presenceFlushIntervalInMs:250}")
+    private long flushIntervalInMs;
+
+    @Autowired
+    public PresenceService(@Lazy SimpMessagingTemplate messagingTemplate, FriendIndex friendIndex) {
+        this.messagingTemplate = messagingTemplate;
+        this.friendIndex = friendIndex;
+    }
+
+    public record Presence(String userId, String username, boolean inGame) {
+    }
+
+    private record FriendshipChange(String userId, String friendId, boolean added) {
+    }
+
+    @PostConstruct
+    public void start() {
+        publisher.scheduleWithFixedDelay(this::flush, flushIntervalInMs, flushIntervalInMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        publisher.shutdownNow();
+    }
+
+    public void sessionConnected(String sessionId, String userId, String username) {
+        if (sessions.connect(sessionId, userId, username)) {
+            // Published once the friend list is indexed, so the join reaches every online friend
+            friendIndex.load(userId)
+                .doFinally(signal -> {
+                    if (!isOnline(userId)) {
+                        friendIndex.evict(userId);
+                    }
+                    changed.add(userId);
+                })
+                .subscribe(friends -> { },
+                    e -> System.out.println("PresenceService: Could not load friends of " + userId + ": " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Returns the user whose last session this was, or null if they are still online.
+     */
+    public String sessionDisconnected(String sessionId) {
+        String userId = sessions.disconnect(sessionId);
+        if (userId != null) {
+            changed.add(userId);
+        }
+        return userId;
+    }
+
+    public void userDisconnected(String userId) {
+        if (sessions.remove(userId)) {
+            changed.add(userId);
+        }
+    }
+
+    public void setInGame(String userId, boolean inGame) {
+        if (sessions.setInGame(userId, inGame)) {
+            changed.add(userId);
+        }
+    }
+
+    public void friendshipChanged(String userId, String friendId, boolean added) {
+        friendshipChanges.add(new FriendshipChange(userId, friendId, added));
+    }
+
+    public boolean isOnline(String userId) {
+        return sessions.get(userId) != null;
+    }
+
+    private Presence current(String userId) {
+        SessionRegistry.State state = sessions.get(userId);
+        return state == null ? null : new Presence(userId, state.username, state.inGame);
+    }
+
+    // The user's online friends, at the version of the last frame they were sent
+    public Mono<Map<String, Object>> snapshot(String userId) {
+        return friendIndex.load(userId).map(friends -> {
+            synchronized (published) {
+                List<Presence> players = new ArrayList<>();
+                for (String friendId : friends) {
+                    Presence friend = published.get(friendId);
+                    if (friend != null) {
+                        players.add(friend);
+                    }
+                }
+                Map<String, Object> snapshot = new LinkedHashMap<>();
+                snapshot.put("version", versions.getOrDefault(userId, 0L));
+                snapshot.put("players", players);
+                return snapshot;
+            }
+        });
+    }
+
+    private void flush() {
+        try {
+            synchronized (published) {
+                int onlineBefore = published.size();
+                Map<String, List<Map<String, Object>>> outbox = new HashMap<>();
+                for (String userId : changed) {
+                    changed.remove(userId);
+                    Presence now = current(userId);
+                    Presence before = now == null ? published.remove(userId) : published.put(userId, now);
+                    Map<String, Object> event = null;
+                    if (now == null && before != null) {
+                        event = event("LEFT", before);
+                    } else if (now != null && before == null) {
+                        event = event("JOINED", now);
+                    } else if (now != null && !now.equals(before)) {
+                        event = event("UPDATED", now);
+                    }
+                    if (event != null) {
+                        for (String friendId : friendIndex.friendsOf(userId)) {
+                            if (published.containsKey(friendId)) {
+                                outbox.computeIfAbsent(friendId, k -> new ArrayList<>()).add(event);
+                            }
+                        }
+                    }
+                    if (now == null) {
+                        versions.remove(userId);
+                        friendIndex.evict(userId);
+                    }
+                }
+
+                // New or removed friends who are both online appear to, or vanish for, each other
+                FriendshipChange change;
+                while ((change = friendshipChanges.poll()) != null) {
+                    Presence user = published.get(change.userId());
+                    Presence friend = published.get(change.friendId());
+                    if (user != null && friend != null) {
+                        String type = change.added() ? "JOINED" : "LEFT";
+                        outbox.computeIfAbsent(change.friendId(), k -> new ArrayList<>()).add(event(type, user));
+                        outbox.computeIfAbsent(change.userId(), k -> new ArrayList<>()).add(event(type, friend));
+                    }
+                }
+
+                for (Map.Entry<String, List<Map<String, Object>>> entry : outbox.entrySet()) {
+                    Map<String, Object> frame = new LinkedHashMap<>();
+                    frame.put("version", versions.merge(entry.getKey(), 1L, Long::sum));
+                    frame.put("events", entry.getValue());
+                    messagingTemplate.convertAndSendToUser(entry.getKey(), PRESENCE_QUEUE, frame);
+                }
+                if (published.size() != onlineBefore) {
+                    messagingTemplate.convertAndSend("/topic/online-count", published.size());
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("PresenceService: Failed to publish presence: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> event(String type, Presence presence) {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("type", type);
+        event.put("userId", presence.userId());
+        event.put("username", presence.username());
+        event.put("inGame", presence.inGame());
+        return event;
+    }
+}
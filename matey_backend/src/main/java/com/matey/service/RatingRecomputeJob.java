@@ -0,0 +1,199 @@
+package com.matey.service;
+
+import com.matey.model.Game;
+import com.matey.model.Rating;
+import com.matey.model.TimeControl;
+import com.matey.model.User;
+import com.matey.rating.Glicko2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Recomputes every rating from scratch by replaying all finished games in
+ * proper Glicko-2 rating periods. Games are streamed from Mongo in finishing
+ * order with only the fields needed; within a period every player's update is
+ * independent, so each period is rated in parallel with fork/join before the
+ * stream moves on. Runs on the rating updater thread, so live updates queued
+ * meanwhile apply on top of the result.
+ */
+@Component
+public class RatingRecomputeJob {
+    private static final int BATCH_SIZE = 1000;
+    // Players rated per fork/join leaf
+    private static final int PARALLEL_THRESHOLD = 512;
+
+    private final MongoTemplate mongoTemplate;
+    private final RatingService ratingService;
+
+    @Autowired
+    public RatingRecomputeJob(MongoTemplate mongoTemplate, RatingService ratingService) {
+        this.mongoTemplate = mongoTemplate;
+        this.ratingService = ratingService;
+    }
+
+    // Disabled unless app.ratingRecomputeCron is set
+    @Scheduled(cron = "${app.ratingRecomputeCron:-}")
+    public void schedule() {
+        ratingService.runExclusively(this::recompute);
+    }
+
+    public void recompute() {
+        long started = System.currentTimeMillis();
+        long periodInMs = ratingService.getRatingPeriodInMs();
+        Map<String, Map<String, Rating>> ratings = new HashMap<>();
+        // Rating equality is by value, players are told apart by instance
+        Map<Rating, PeriodResults> period = new IdentityHashMap<>();
+        long currentPeriod = Long.MIN_VALUE;
+        long games = 0;
+
+        Query query = Query.query(Criteria.where("status").is("FINISHED")
+                .and("winner").ne(null)
+                .and("updatedAt").lte(Instant.ofEpochMilli(started)))
+            .with(Sort.by("updatedAt"))
+            .allowDiskUse(true)
+            .cursorBatchSize(BATCH_SIZE);
+        query.fields().include("whitePlayerId", "blackPlayerId", "winner", "timeControl", "updatedAt");
+
+        try (Stream<Game> stream = mongoTemplate.stream(query, Game.class)) {
+            for (Game game : (Iterable<Game>) stream::iterator) {
+                long gamePeriod = game.getUpdatedAt().toEpochMilli() / periodInMs;
+                if (gamePeriod != currentPeriod) {
+                    ratePeriod(period, currentPeriod, periodInMs);
+                    currentPeriod = gamePeriod;
+                }
+                String category = TimeControl.parse(game.getTimeControl()).getCategory();
+                Rating white = ratings.computeIfAbsent(game.getWhitePlayerId(), k -> new HashMap<>())
+                    .computeIfAbsent(category, k -> new Rating());
+                Rating black = ratings.computeIfAbsent(game.getBlackPlayerId(), k -> new HashMap<>())
+                    .computeIfAbsent(category, k -> new Rating());
+                double whiteScore = "WHITE".equals(game.getWinner()) ? 1 : "BLACK".equals(game.getWinner()) ? 0 : 0.5;
+                // Ratings are only written at the end of the period, so these are the pre-period values
+                period.computeIfAbsent(white, PeriodResults::new).add(black, whiteScore);
+                period.computeIfAbsent(black, PeriodResults::new).add(white, 1 - whiteScore);
+                games++;
+            }
+        }
+        ratePeriod(period, currentPeriod, periodInMs);
+
+        save(ratings);
+        ratingService.ratingsRecomputed(ratings);
+        System.out.println("RatingRecomputeJob: Rated " + games + " games for " + ratings.size() + " players in "
+            + (System.currentTimeMillis() - started) + " ms");
+    }
+
+    private void ratePeriod(Map<Rating, PeriodResults> period, long index, long periodInMs) {
+        if (period.isEmpty()) {
+            return;
+        }
+        PeriodResults[] players = period.values().toArray(new PeriodResults[0]);
+        ForkJoinPool.commonPool().invoke(new RatePlayers(players, 0, players.length, index, periodInMs));
+        period.clear();
+    }
+
+    private void save(Map<String, Map<String, Rating>> ratings) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+        int queued = 0;
+        for (Map.Entry<String, Map<String, Rating>> entry : ratings.entrySet()) {
+            bulk.updateOne(Query.query(Criteria.where("_id").is(entry.getKey())),
+                new Update().set("ratings", entry.getValue()));
+            if (++queued == BATCH_SIZE) {
+                bulk.execute();
+                bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+                queued = 0;
+            }
+        }
+        if (queued > 0) {
+            bulk.execute();
+        }
+    }
+
+    // Whole periods between the last one the rating was rated in and the given one, both excluded;
+    // a recomputed rating's updatedAt is the start of the period after the last one rated
+    static long idlePeriods(Rating rating, long period, long periodInMs) {
+        if (rating.getUpdatedAt() == null) {
+            return 0;
+        }
+        return period - rating.getUpdatedAt().toEpochMilli() / periodInMs;
+    }
+
+    // One player's games within a period, with opponents' values captured before the period
+    private static final class PeriodResults {
+        final Rating rating;
+        double[] opponentRatings = new double[4];
+        double[] opponentDeviations = new double[4];
+        double[] scores = new double[4];
+        int count;
+
+        PeriodResults(Rating rating) {
+            this.rating = rating;
+        }
+
+        void add(Rating opponent, double score) {
+            if (count == scores.length) {
+                opponentRatings = Arrays.copyOf(opponentRatings, count * 2);
+                opponentDeviations = Arrays.copyOf(opponentDeviations, count * 2);
+                scores = Arrays.copyOf(scores, count * 2);
+            }
+            opponentRatings[count] = opponent.getRating();
+            opponentDeviations[count] = opponent.getDeviation();
+            scores[count++] = score;
+        }
+    }
+
+    private static final class RatePlayers extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final PeriodResults[] players;
+        private final int from;
+        private final int to;
+        private final long period;
+        private final long periodInMs;
+
+        RatePlayers(PeriodResults[] players, int from, int to, long period, long periodInMs) {
+            this.players = players;
+            this.from = from;
+            this.to = to;
+            this.period = period;
+            this.periodInMs = periodInMs;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PARALLEL_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RatePlayers(players, from, middle, period, periodInMs),
+                    new RatePlayers(players, middle, to, period, periodInMs));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                PeriodResults results = players[i];
+                Rating rating = results.rating;
+                // Periods sat out since the player last played only widen the deviation
+                Rating inflated = Glicko2.inflate(rating, idlePeriods(rating, period, periodInMs));
+                Rating rated = Glicko2.rate(inflated, results.opponentRatings,
+                    results.opponentDeviations, results.scores, results.count);
+                rating.setRating(rated.getRating());
+                rating.setDeviation(rated.getDeviation());
+                rating.setVolatility(rated.getVolatility());
+                rating.setGames(rated.getGames());
+                rating.setUpdatedAt(Instant.ofEpochMilli((period + 1) * periodInMs));
+            }
+        }
+    }
+}
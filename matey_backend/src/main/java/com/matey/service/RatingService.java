@@ -0,0 +1,170 @@
+package com.matey.service;
+
+import com.matey.model.Game;
+import com.matey.model.Rating;
+import com.matey.model.TimeControl;
+import com.matey.model.User;
+import com.matey.rating.Glicko2;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rates finished games. Each game is treated as a rating period of its own so
+ * ratings move as soon as it ends; {@link RatingRecomputeJob} later replays all
+ * games in proper rating periods. Updates run one at a time on a single thread,
+ * so a player finishing two games at once cannot lose either update. The
+ * ratings of online users are also held in memory, loaded when they connect,
+ * so matchmaking can read them without waiting on Mongo.
+ */
+@Service
+public class RatingService {
+    private final MongoTemplate mongoTemplate;
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+    // Each user's map is replaced on change, never modified, so readers need no lock
+    private final Map<String, Map<String, Rating>> onlineRatings = new ConcurrentHashMap<>();
+    private final ExecutorService updater = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "rating-updater");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${app.ratingPeriodInMs:86400000}")
+    private long ratingPeriodInMs;
+
+    @Autowired
+    public RatingService(MongoTemplate mongoTemplate, ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        updater.shutdown();
+        updater.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    public long getRatingPeriodInMs() {
+        return ratingPeriodInMs;
+    }
+
+    // Runs a task on the updater thread, after every rating update queued before it
+    void runExclusively(Runnable task) {
+        updater.execute(task);
+    }
+
+    // Loads the user's ratings into memory without blocking the caller
+    public Mono<Map<String, Rating>> loadRatings(String userId) {
+        Query query = Query.query(Criteria.where("_id").is(userId));
+        query.fields().include("ratings");
+        return reactiveMongoTemplate.findOne(query, User.class)
+            .map(user -> Map.copyOf(user.getRatings()))
+            .defaultIfEmpty(Map.of())
+            .doOnNext(ratings -> onlineRatings.put(userId, ratings));
+    }
+
+    // The rating from memory, or null if the user's ratings have not been loaded
+    public Rating getLoadedRating(String userId, String category) {
+        Map<String, Rating> ratings = onlineRatings.get(userId);
+        if (ratings == null) {
+            return null;
+        }
+        Rating rating = ratings.get(category);
+        return rating == null ? new Rating() : current(rating, Instant.now());
+    }
+
+    public void unloadRatings(String userId) {
+        onlineRatings.remove(userId);
+    }
+
+    // Brings the ratings of loaded users up to date after a recompute rewrote them
+    void ratingsRecomputed(Map<String, Map<String, Rating>> ratings) {
+        ratings.forEach((userId, userRatings) ->
+            onlineRatings.computeIfPresent(userId, (id, loaded) -> Map.copyOf(userRatings)));
+    }
+
+    public void gameFinished(Game game) {
+        if (game.getWinner() == null) {
+            return;
+        }
+        String whitePlayerId = game.getWhitePlayerId();
+        String blackPlayerId = game.getBlackPlayerId();
+        String category = TimeControl.parse(game.getTimeControl()).getCategory();
+        double whiteScore = "WHITE".equals(game.getWinner()) ? 1 : "BLACK".equals(game.getWinner()) ? 0 : 0.5;
+        updater.execute(() -> {
+            try {
+                rate(whitePlayerId, blackPlayerId, category, whiteScore);
+            } catch (Exception e) {
+                System.out.println("RatingService: Failed to rate game " + game.getId() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private void rate(String whitePlayerId, String blackPlayerId, String category, double whiteScore) {
+        String field = "ratings." + category;
+        Query query = Query.query(Criteria.where("_id").in(whitePlayerId, blackPlayerId));
+        query.fields().include(field);
+        List<User> players = mongoTemplate.find(query, User.class);
+
+        Instant now = Instant.now();
+        Rating white = new Rating();
+        Rating black = new Rating();
+        for (User player : players) {
+            Rating rating = player.getRatings().get(category);
+            if (rating != null && player.getId().equals(whitePlayerId)) {
+                white = current(rating, now);
+            } else if (rating != null) {
+                black = current(rating, now);
+            }
+        }
+
+        // Both sides are rated against the other's rating from before the game
+        Rating newWhite = Glicko2.rate(white, new double[]{black.getRating()},
+            new double[]{black.getDeviation()}, new double[]{whiteScore}, 1);
+        Rating newBlack = Glicko2.rate(black, new double[]{white.getRating()},
+            new double[]{white.getDeviation()}, new double[]{1 - whiteScore}, 1);
+        newWhite.setUpdatedAt(now);
+        newBlack.setUpdatedAt(now);
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, User.class);
+        bulk.updateOne(Query.query(Criteria.where("_id").is(whitePlayerId)), new Update().set(field, newWhite));
+        bulk.updateOne(Query.query(Criteria.where("_id").is(blackPlayerId)), new Update().set(field, newBlack));
+        bulk.execute();
+        ratingChanged(whitePlayerId, category, newWhite);
+        ratingChanged(blackPlayerId, category, newBlack);
+    }
+
+    private void ratingChanged(String userId, String category, Rating rating) {
+        onlineRatings.computeIfPresent(userId, (id, loaded) -> {
+            Map<String, Rating> ratings = new HashMap<>(loaded);
+            ratings.put(category, rating);
+            return Map.copyOf(ratings);
+        });
+    }
+
+    // A stored rating with its deviation grown for the rating periods since it last changed
+    private Rating current(Rating rating, Instant now) {
+        if (rating.getUpdatedAt() == null) {
+            return rating;
+        }
+        long idle = now.toEpochMilli() - rating.getUpdatedAt().toEpochMilli();
+        return Glicko2.inflate(rating, (double) idle / ratingPeriodInMs);
+    }
+}
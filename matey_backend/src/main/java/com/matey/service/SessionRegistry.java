@@ -0,0 +1,154 @@
+package com.matey.service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Online users and their STOMP sessions without locks. Each user maps to an
+ * immutable {@link State}; every transition reads the current state, builds
+ * the next one and installs it with a compare-and-set on the map, retrying if
+ * another thread got there first. A user with several tabs open therefore
+ * goes offline exactly once, when the last session is removed, however the
+ * connects and disconnects interleave.
+ */
+class SessionRegistry {
+    private final Map<String, State> users = new ConcurrentHashMap<>();
+    private final Map<String, String> sessionToUser = new ConcurrentHashMap<>();
+
+    // Compared by identity, which is what the compare-and-set relies on
+    static final class State {
+        final String username;
+        final boolean inGame;
+        // A user rarely has more than a few tabs open, so a copied array beats a set
+        final String[] sessions;
+
+        State(String username, boolean inGame, String[] sessions) {
+            this.username = username;
+            this.inGame = inGame;
+            this.sessions = sessions;
+        }
+
+        boolean hasSession(String sessionId) {
+            return indexOf(sessionId) >= 0;
+        }
+
+        State withSession(String sessionId) {
+            if (hasSession(sessionId)) {
+                return this;
+            }
+            String[] next = Arrays.copyOf(sessions, sessions.length + 1);
+            next[sessions.length] = sessionId;
+            return new State(username, inGame, next);
+        }
+
+        State withoutSession(String sessionId) {
+            int index = indexOf(sessionId);
+            String[] next = new String[sessions.length - 1];
+            System.arraycopy(sessions, 0, next, 0, index);
+            System.arraycopy(sessions, index + 1, next, index, next.length - index);
+            return new State(username, inGame, next);
+        }
+
+        State withInGame(boolean inGame) {
+            return new State(username, inGame, sessions);
+        }
+
+        private int indexOf(String sessionId) {
+            for (int i = 0; i < sessions.length; i++) {
+                if (sessions[i].equals(sessionId)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Adds a session and returns true if it brought the user online.
+     */
+    boolean connect(String sessionId, String userId, String username) {
+        sessionToUser.put(sessionId, userId);
+        while (true) {
+            State state = users.get(userId);
+            if (state == null) {
+                if (users.putIfAbsent(userId, new State(username, false, new String[]{sessionId})) == null) {
+                    return true;
+                }
+            } else {
+                State next = state.withSession(sessionId);
+                if (next == state || users.replace(userId, state, next)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a session and returns its user if that was their last one, otherwise null.
+     */
+    String disconnect(String sessionId) {
+        String userId = sessionToUser.remove(sessionId);
+        if (userId == null) {
+            return null;
+        }
+        while (true) {
+            State state = users.get(userId);
+            if (state == null || !state.hasSession(sessionId)) {
+                return null;
+            }
+            if (state.sessions.length == 1) {
+                if (users.remove(userId, state)) {
+                    return userId;
+                }
+            } else if (users.replace(userId, state, state.withoutSession(sessionId))) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Drops the user with all their sessions; returns false if they were not online.
+     */
+    boolean remove(String userId) {
+        while (true) {
+            State state = users.get(userId);
+            if (state == null) {
+                return false;
+            }
+            if (users.remove(userId, state)) {
+                for (String sessionId : state.sessions) {
+                    sessionToUser.remove(sessionId, userId);
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns false if the user is offline or already in that state.
+     */
+    boolean setInGame(String userId, boolean inGame) {
+        while (true) {
+            State state = users.get(userId);
+            if (state == null || state.inGame == inGame) {
+                return false;
+            }
+            if (users.replace(userId, state, state.withInGame(inGame))) {
+                return true;
+            }
+        }
+    }
+
+    State get(String userId) {
+        return users.get(userId);
+    }
+
+    int size() {
+        return users.size();
+    }
+
+    int sessionCount() {
+        return sessionToUser.size();
+    }
+}
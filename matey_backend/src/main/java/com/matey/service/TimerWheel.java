@@ -0,0 +1,159 @@
+package com.matey.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Hashed timer wheel for game clocks. Every timeout lives in the bucket of its
+ * deadline tick, so each tick only looks at one bucket whatever the number of
+ * running clocks, and scheduling or cancelling is constant time. Timeouts
+ * fire at most one tick late and never early. New timeouts are queued and
+ * placed by the single wheel thread, which is the only one touching buckets;
+ * callbacks run on that thread and should only hand work off.
+ */
+@Component
+public class TimerWheel {
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final LongSupplier clock;
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "game-clock");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Bucket[] buckets;
+    private int mask;
+    private long startedAt;
+    // Ticks processed so far; only read and written by the wheel thread
+    private long tick;
+
+    @Value("${app.clockTickInMs:50}")
+    private long tickInMs;
+
+    // Rounded up to a power of two
+    @Value("${app.clockWheelSize:512}")
+    private int wheelSize;
+
+    public TimerWheel() {
+        this.clock = System::currentTimeMillis;
+    }
+
+    // For tests, which drive the wheel through advance() on their own clock
+    TimerWheel(LongSupplier clock, long tickInMs, int wheelSize) {
+        this.clock = clock;
+        this.tickInMs = tickInMs;
+        this.wheelSize = wheelSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        init();
+        ticker.scheduleAtFixedRate(this::advance, tickInMs, tickInMs, TimeUnit.MILLISECONDS);
+    }
+
+    void init() {
+        int size = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1;
+        buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new Bucket();
+        }
+        mask = size - 1;
+        startedAt = clock.getAsLong();
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    public Timeout schedule(long deadline, Runnable task) {
+        Timeout timeout = new Timeout(deadline, task);
+        added.add(timeout);
+        return timeout;
+    }
+
+    // Catches up on every tick that is due, so a delayed run never skips a bucket
+    void advance() {
+        try {
+            long due = (clock.getAsLong() - startedAt) / tickInMs;
+            while (tick < due) {
+                tick++;
+                placeAdded();
+                buckets[(int) (tick & mask)].expire();
+            }
+        } catch (Exception e) {
+            System.out.println("TimerWheel: Tick failed: " + e.getMessage());
+        }
+    }
+
+    private void placeAdded() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            // The first tick that ends at or after the deadline, and never one already processed
+            long deadlineTick = Math.max(tick, ceilDiv(timeout.deadline - startedAt, tickInMs));
+            timeout.rounds = (deadlineTick - tick) / buckets.length;
+            buckets[(int) (deadlineTick & mask)].timeouts.add(timeout);
+        }
+    }
+
+    // The timeouts of one slot, over every revolution of the wheel
+    private static final class Bucket {
+        private final List<Timeout> timeouts = new ArrayList<>();
+
+        // Compacts the bucket in place, keeping the timeouts of later rounds
+        void expire() {
+            int kept = 0;
+            for (int i = 0; i < timeouts.size(); i++) {
+                Timeout timeout = timeouts.get(i);
+                if (timeout.cancelled) {
+                    continue;
+                }
+                if (timeout.rounds > 0) {
+                    timeout.rounds--;
+                    timeouts.set(kept++, timeout);
+                    continue;
+                }
+                try {
+                    timeout.task.run();
+                } catch (Exception e) {
+                    System.out.println("TimerWheel: Timeout failed: " + e.getMessage());
+                }
+            }
+            timeouts.subList(kept, timeouts.size()).clear();
+        }
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    public static final class Timeout {
+        private final long deadline;
+        private final Runnable task;
+        private volatile boolean cancelled;
+        private long rounds;
+
+        private Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        // Dropped from its bucket the next time the wheel passes it
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
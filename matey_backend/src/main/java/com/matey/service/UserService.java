@@ -1,28 +1,59 @@
 package com.matey.service;
 
 import com.matey.model.User;
+import com.matey.payload.CursorPage;
 import com.matey.payload.UserProfile;
 import com.matey.repository.UserRepository;
+import com.matey.security.JwtAuthenticationCache;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_SEARCH_RESULTS = 20;
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
     @Autowired
     private AuthenticationManager authenticationManager;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private FriendIndex friendIndex;
+
+    @Autowired
+    private UsernameIndex usernameIndex;
+
+    @Autowired
+    private JwtAuthenticationCache authenticationCache;
+
+    @Autowired
+    private PresenceService presenceService;
+
     public User getUserById(String id) {
         return userRepository.findById(id)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + id));
@@ -53,9 +84,15 @@ public class UserService {
             throw new IllegalArgumentException("Email is already registered");
         }
 
+        // Only these fields are written, a concurrent friend update is never overwritten
         user.setUsername(userProfile.getUsername());
         user.setEmail(userProfile.getEmail());
-        return userRepository.save(user);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)),
+                new Update().set("username", user.getUsername()).set("email", user.getEmail()),
+                User.class);
+        authenticationCache.evictUser(id);
+        usernameIndex.put(new UserProfile(user.getId(), user.getUsername(), user.getEmail()));
+        return user;
     }
 
     public void changePassword(String id, String currentPassword, String newPassword) {
@@ -67,12 +104,16 @@ public class UserService {
         );
 
         // Update password
-        user.setPassword(passwordEncoder.encode(newPassword));
-        userRepository.save(user);
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)),
+                Update.update("password", passwordEncoder.encode(newPassword)),
+                User.class);
+        authenticationCache.evictUser(id);
     }
 
     public User save(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        usernameIndex.put(new UserProfile(saved.getId(), saved.getUsername(), saved.getEmail()));
+        return saved;
     }
 
     public boolean existsByUsername(String username) {
@@ -87,14 +128,78 @@ public class UserService {
         return userRepository.findAll();
     }
 
-    public List<User> getFriends(String userId) {
-        User user = getUserById(userId);
-        return new ArrayList<>(user.getFriends());
+    // Served from memory, Mongo is not queried
+    public List<UserProfile> searchMembers(String excludeUserId, String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new IllegalArgumentException("Search text is required");
+        }
+        return usernameIndex.search(prefix.trim(), Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)), excludeUserId);
+    }
+
+    // Keyset page of members ordered by id, read straight into UserProfile so nothing else is loaded
+    public CursorPage<UserProfile> getMembers(String excludeUserId, String after, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<UserProfile> members = mongoTemplate.query(User.class)
+                .as(UserProfile.class)
+                .matching(membersQuery(excludeUserId, after).limit(pageSize))
+                .all();
+        String nextCursor = members.size() == pageSize ? members.get(pageSize - 1).getId() : null;
+        return new CursorPage<>(members, nextCursor);
+    }
+
+    // Same listing from a cursor to the end, handed over one member at a time from the open Mongo cursor
+    public void streamMembers(String excludeUserId, String after, Consumer<UserProfile> consumer) {
+        try (Stream<UserProfile> members = mongoTemplate.query(User.class)
+                .as(UserProfile.class)
+                .matching(membersQuery(excludeUserId, after).cursorBatchSize(MAX_PAGE_SIZE * 10))
+                .stream()) {
+            members.forEach(consumer);
+        }
+    }
+
+    private Query membersQuery(String excludeUserId, String after) {
+        Criteria id = Criteria.where("_id").ne(excludeUserId);
+        if (after != null) {
+            if (!ObjectId.isValid(after)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            id = id.gt(after);
+        }
+        return Query.query(id).with(Sort.by("_id"));
+    }
+
+    // Online users' friend ids are cached, so their friends load in one $in query
+    public List<UserProfile> getFriends(String userId) {
+        Set<String> friendIds = friendIndex.cached(userId);
+        return getProfiles(friendIds != null ? friendIds : getFriendGraph(userId).getFriendIds());
     }
 
-    public List<User> getFriendRequests(String userId) {
-        User user = getUserById(userId);
-        return new ArrayList<>(user.getFriendRequests());
+    public List<UserProfile> getFriendRequests(String userId) {
+        return getProfiles(getFriendGraph(userId).getFriendRequestIds());
+    }
+
+    private User getFriendGraph(String userId) {
+        User user = findFriendGraph(userId);
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found with id: " + userId);
+        }
+        return user;
+    }
+
+    // Only the friend id arrays of a user, or null when there is no such user
+    private User findFriendGraph(String userId) {
+        Query query = Query.query(Criteria.where("_id").is(userId));
+        query.fields().include("friendIds", "friendRequestIds");
+        return mongoTemplate.findOne(query, User.class);
+    }
+
+    // One round trip however many ids, reading only the profile fields
+    private List<UserProfile> getProfiles(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Query query = Query.query(Criteria.where("_id").in(ids)).with(Sort.by("username"));
+        return mongoTemplate.query(User.class).as(UserProfile.class).matching(query).all();
     }
 
     // Send friend request
@@ -103,64 +208,113 @@ public class UserService {
             throw new IllegalArgumentException("Cannot send friend request to yourself");
         }
 
-        User fromUser = getUserById(fromUserId);
-        User toUser = getUserById(toUserId);
-
-        if (fromUser.getFriends().contains(toUser)) {
-            throw new IllegalArgumentException("Already friends with this user");
-        }
-
-        if (toUser.getFriendRequests().contains(fromUser)) {
+        BulkWriteResult result = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, User.class)
+                .updateOne(Query.query(Criteria.where("_id").is(toUserId)
+                                .and("friendIds").ne(fromUserId)
+                                .and("friendRequestIds").ne(fromUserId)),
+                        new Update().addToSet("friendRequestIds", fromUserId))
+                .updateOne(Query.query(Criteria.where("_id").is(fromUserId)
+                                .and("friendIds").ne(toUserId)
+                                .and("sentFriendRequestIds").ne(toUserId)),
+                        new Update().addToSet("sentFriendRequestIds", toUserId))
+                .execute();
+
+        if (result.getMatchedCount() < 2) {
+            // Read the recipient only to say why; it decides, the sender's list is a mirror
+            User toUser = findFriendGraph(toUserId);
+            if (toUser == null || !toUser.getFriendRequestIds().contains(fromUserId)) {
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(fromUserId)),
+                        new Update().pull("sentFriendRequestIds", toUserId), User.class);
+            }
+            if (toUser == null) {
+                throw new UsernameNotFoundException("User not found with id: " + toUserId);
+            }
+            if (toUser.getFriendIds().contains(fromUserId)) {
+                throw new IllegalArgumentException("Already friends with this user");
+            }
             throw new IllegalArgumentException("Friend request already sent");
         }
-
-        toUser.getFriendRequests().add(fromUser);
-        userRepository.save(toUser);
     }
 
     // Accept friend request
     public void acceptFriendRequest(String userId, String friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-
-        if (!user.getFriendRequests().contains(friend)) {
+        // Both sides as they were, so a half-applied accept can be put back exactly
+        Query graphs = Query.query(Criteria.where("_id").in(userId, friendId));
+        graphs.fields().include("friendIds", "friendRequestIds", "sentFriendRequestIds");
+        List<User> before = mongoTemplate.find(graphs, User.class);
+
+        // A request the friend had also received from this user is settled by the same writes
+        BulkWriteResult result = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, User.class)
+                .updateOne(Query.query(Criteria.where("_id").is(userId).and("friendRequestIds").is(friendId)),
+                        new Update().pull("friendRequestIds", friendId)
+                                .pull("sentFriendRequestIds", friendId)
+                                .addToSet("friendIds", friendId))
+                .updateOne(Query.query(Criteria.where("_id").is(friendId).and("sentFriendRequestIds").is(userId)),
+                        new Update().pull("sentFriendRequestIds", userId)
+                                .pull("friendRequestIds", userId)
+                                .addToSet("friendIds", userId))
+                .execute();
+
+        if (result.getMatchedCount() == 1) {
+            // Only one side accepted, e.g. the sender's mirror was not written yet; the side that did
+            // not match is still as it was, so putting both back only undoes the one that did
+            for (User user : before) {
+                String otherId = user.getId().equals(userId) ? friendId : userId;
+                mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(user.getId())),
+                        restoreMembership(user, otherId), User.class);
+            }
+        }
+        if (result.getMatchedCount() < 2) {
             throw new IllegalArgumentException("No friend request from this user");
         }
+        friendIndex.addFriendship(userId, friendId);
+        presenceService.friendshipChanged(userId, friendId, true);
+    }
 
-        user.getFriendRequests().remove(friend);
-        user.getFriends().add(friend);
-        friend.getFriends().add(user);
+    // Puts otherId back into, or out of, each friend list of the user as it was in the given image
+    private static Update restoreMembership(User user, String otherId) {
+        Update update = new Update();
+        setMembership(update, "friendIds", otherId, user.getFriendIds().contains(otherId));
+        setMembership(update, "friendRequestIds", otherId, user.getFriendRequestIds().contains(otherId));
+        setMembership(update, "sentFriendRequestIds", otherId, user.getSentFriendRequestIds().contains(otherId));
+        return update;
+    }
 
-        userRepository.save(user);
-        userRepository.save(friend);
+    private static void setMembership(Update update, String field, String id, boolean member) {
+        if (member) {
+            update.addToSet(field, id);
+        } else {
+            update.pull(field, id);
+        }
     }
 
     // Reject friend request
     public void rejectFriendRequest(String userId, String friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-
-        if (!user.getFriendRequests().contains(friend)) {
+        BulkWriteResult result = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, User.class)
+                .updateOne(Query.query(Criteria.where("_id").is(userId).and("friendRequestIds").is(friendId)),
+                        new Update().pull("friendRequestIds", friendId))
+                .updateOne(Query.query(Criteria.where("_id").is(friendId).and("sentFriendRequestIds").is(userId)),
+                        new Update().pull("sentFriendRequestIds", userId))
+                .execute();
+
+        if (result.getMatchedCount() == 0) {
             throw new IllegalArgumentException("No friend request from this user");
         }
-
-        user.getFriendRequests().remove(friend);
-        userRepository.save(user);
     }
 
     // Remove friend
     public void removeFriend(String userId, String friendId) {
-        User user = getUserById(userId);
-        User friend = getUserById(friendId);
-
-        if (!user.getFriends().contains(friend)) {
+        BulkWriteResult result = mongoTemplate.bulkOps(BulkOperations.BulkMode.ORDERED, User.class)
+                .updateOne(Query.query(Criteria.where("_id").is(userId).and("friendIds").is(friendId)),
+                        new Update().pull("friendIds", friendId))
+                .updateOne(Query.query(Criteria.where("_id").is(friendId).and("friendIds").is(userId)),
+                        new Update().pull("friendIds", userId))
+                .execute();
+
+        if (result.getMatchedCount() == 0) {
             throw new IllegalArgumentException("Not friends with this user");
         }
-
-        user.getFriends().remove(friend);
-        friend.getFriends().remove(user);
-
-        userRepository.save(user);
-        userRepository.save(friend);
+        friendIndex.removeFriendship(userId, friendId);
+        presenceService.friendshipChanged(userId, friendId, false);
     }
 } 
@@ -0,0 +1,96 @@
+package com.matey.service;
+
+import com.matey.model.User;
+import com.matey.payload.UserProfile;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Every member's profile ordered by lower-cased username, so a prefix search
+ * is a seek to the prefix followed by a walk over at most the requested number
+ * of matches, without touching Mongo. Loaded once at startup and kept in step
+ * by {@link UserService} whenever a user is saved; searches never lock.
+ */
+@Component
+public class UsernameIndex {
+    // Separates the username from the id in a key, and sorts before any character a username may hold
+    private static final char SEPARATOR = '\u0000';
+
+    private final MongoTemplate mongoTemplate;
+    private final NavigableMap<String, UserProfile> byUsername = new ConcurrentSkipListMap<>();
+    // Current key of each user, so a rename can drop the old one
+    private final Map<String, String> keys = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UsernameIndex(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void load() {
+        Query query = new Query();
+        query.fields().include("username", "email");
+        try (Stream<UserProfile> users = mongoTemplate.query(User.class).as(UserProfile.class).matching(query).stream()) {
+            users.forEach(this::put);
+        }
+        System.out.println("UsernameIndex: Indexed " + keys.size() + " users");
+    }
+
+    // Writes are rare and serialized; readers see either the old or the new entry of a renamed user
+    public synchronized void put(UserProfile user) {
+        String key = key(user.getUsername(), user.getId());
+        byUsername.put(key, user);
+        String previous = keys.put(user.getId(), key);
+        if (previous != null && !previous.equals(key)) {
+            byUsername.remove(previous);
+        }
+    }
+
+    public synchronized void remove(String userId) {
+        String key = keys.remove(userId);
+        if (key != null) {
+            byUsername.remove(key);
+        }
+    }
+
+    // Null for an unknown user
+    public UserProfile get(String userId) {
+        String key = keys.get(userId);
+        return key == null ? null : byUsername.get(key);
+    }
+
+    public List<UserProfile> search(String prefix, int limit, String excludeUserId) {
+        String normalized = prefix.toLowerCase(Locale.ROOT);
+        List<UserProfile> matches = new ArrayList<>(limit);
+        for (Map.Entry<String, UserProfile> entry : byUsername.tailMap(normalized).entrySet()) {
+            if (matches.size() == limit || !entry.getKey().startsWith(normalized)) {
+                break;
+            }
+            UserProfile user = entry.getValue();
+            if (!user.getId().equals(excludeUserId)) {
+                matches.add(user);
+            }
+        }
+        return matches;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    private static String key(String username, String userId) {
+        return username.toLowerCase(Locale.ROOT) + SEPARATOR + userId;
+    }
+}
@@ -0,0 +1,267 @@
+package com.matey.bench;
+
+import com.matey.MateyApplication;
+import com.matey.config.VirtualThreads;
+import com.matey.model.User;
+import com.matey.repository.UserRepository;
+import com.matey.security.JwtTokenProvider;
+import com.matey.security.UserPrincipal;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Load harness comparing platform and virtual threads under blocking Mongo
+ * calls. For each mode it starts the application on a random port against the
+ * matey-bench database with bench.sockets users, 5000 by default. Each user
+ * holds an authenticated STOMP session and keeps one GET /api/users/members
+ * request in flight on its own connection. That handler pages members with a
+ * synchronous MongoTemplate query, so a request holds its thread for the whole
+ * round trip to Mongo. Throughput, latency percentiles and errors measured
+ * after the warmup are printed side by side.
+ *
+ * Only the bench profile runs it, and it needs a local Mongo and a file
+ * descriptor limit above twice the user count: mvn -Pbench,java21 test. Built
+ * for Java 17, the virtual run falls back to platform threads, as its row shows.
+ */
+class ExecutorLoadBench {
+    private static final int SOCKETS = Integer.getInteger("bench.sockets", 5000);
+    private static final int WARMUP_SECONDS = Integer.getInteger("bench.warmupSeconds", 10);
+    private static final int SECONDS = Integer.getInteger("bench.seconds", 30);
+    // Handshakes in flight while connecting, so the server is not flooded before the run starts
+    private static final int CONNECT_CONCURRENCY = 200;
+
+    private record Result(String executor, boolean virtual, int sockets, long requests, long errors,
+                          long p50, long p99, long p999) {
+    }
+
+    @Test
+    void compareExecutors() throws Exception {
+        Path journalDir = Files.createTempDirectory("matey-bench-journal");
+        List<Result> results = new ArrayList<>();
+        results.add(run("platform", false, journalDir.resolve("platform")));
+        results.add(run("virtual", true, journalDir.resolve("virtual")));
+
+        System.out.printf("%nGET /api/users/members, %d s after %d s warmup%n", SECONDS, WARMUP_SECONDS);
+        System.out.printf("%-9s %-8s %8s %12s %8s %9s %9s %9s%n",
+            "executor", "virtual", "sockets", "requests/s", "errors", "p50 ms", "p99 ms", "p99.9 ms");
+        for (Result result : results) {
+            System.out.printf("%-9s %-8s %8d %12.0f %8d %9.2f %9.2f %9.2f%n", result.executor(), result.virtual(),
+                result.sockets(), (double) result.requests() / SECONDS, result.errors(),
+                result.p50() / 1e6, result.p99() / 1e6, result.p999() / 1e6);
+        }
+    }
+
+    private Result run(String executor, boolean virtual, Path journalDir) throws Exception {
+        // Command line arguments, so they win over application.properties
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MateyApplication.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtual,
+                "--spring.data.mongodb.database=matey-bench",
+                "--app.journalDir=" + journalDir,
+                "--app.queryPlanCheckEnabled=false")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            boolean virtualEnabled = context.getBean(VirtualThreads.class).isEnabled();
+            List<String> tokens = tokens(context);
+
+            WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+            stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+            List<StompSession> sessions = connect(stompClient, "ws://localhost:" + port + "/ws", tokens);
+            assertFalse(sessions.isEmpty(), "No session could connect");
+
+            long recordFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+            long recordUntil = recordFrom + TimeUnit.SECONDS.toNanos(SECONDS);
+            HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            URI members = URI.create("http://localhost:" + port + "/api/users/members?limit=20");
+            List<Client> clients = new ArrayList<>();
+            for (String token : tokens) {
+                HttpRequest request = HttpRequest.newBuilder(members).header("Authorization", "Bearer " + token).build();
+                Client client = new Client(http, request, recordFrom, recordUntil);
+                clients.add(client);
+                client.send();
+            }
+            Thread.sleep(TimeUnit.NANOSECONDS.toMillis(recordUntil - System.nanoTime()));
+            for (Client client : clients) {
+                client.stop();
+            }
+            // Let the last responses land before the sessions close
+            Thread.sleep(2000);
+            for (StompSession session : sessions) {
+                session.disconnect();
+            }
+            stompClient.stop();
+
+            long errors = 0;
+            for (Client client : clients) {
+                errors += client.errors();
+            }
+            long[] latencies = merge(clients);
+            Arrays.sort(latencies);
+            return new Result(executor, virtualEnabled, sessions.size(), latencies.length, errors,
+                percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999));
+        }
+    }
+
+    // One bench user per socket, created on the first run and reused after that
+    private static List<String> tokens(ConfigurableApplicationContext context) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        JwtTokenProvider tokenProvider = context.getBean(JwtTokenProvider.class);
+        Map<String, User> users = new HashMap<>();
+        for (User user : userRepository.findAll()) {
+            users.put(user.getUsername(), user);
+        }
+        List<User> missing = new ArrayList<>();
+        for (int i = 0; i < SOCKETS; i++) {
+            if (!users.containsKey("bench" + i)) {
+                User user = new User();
+                user.setUsername("bench" + i);
+                user.setEmail("bench" + i + "@bench.local");
+                user.setPassword("bench");
+                missing.add(user);
+            }
+        }
+        for (User user : userRepository.saveAll(missing)) {
+            users.put(user.getUsername(), user);
+        }
+
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < SOCKETS; i++) {
+            UserPrincipal principal = UserPrincipal.create(users.get("bench" + i));
+            tokens.add(tokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities())));
+        }
+        return tokens;
+    }
+
+    private static List<StompSession> connect(WebSocketStompClient stompClient, String url, List<String> tokens)
+            throws InterruptedException {
+        Semaphore handshakes = new Semaphore(CONNECT_CONCURRENCY);
+        List<CompletableFuture<StompSession>> futures = new ArrayList<>();
+        for (String token : tokens) {
+            handshakes.acquire();
+            StompHeaders headers = new StompHeaders();
+            headers.add("Authorization", "Bearer " + token);
+            futures.add(stompClient.connectAsync(url, new WebSocketHttpHeaders(), headers, new StompSessionHandlerAdapter() {
+            }).whenComplete((session, e) -> handshakes.release()));
+        }
+
+        List<StompSession> sessions = new ArrayList<>();
+        int failed = 0;
+        for (CompletableFuture<StompSession> future : futures) {
+            try {
+                sessions.add(future.get(30, TimeUnit.SECONDS));
+            } catch (Exception e) {
+                failed++;
+            }
+        }
+        if (failed > 0) {
+            System.out.println("ExecutorLoadBench: " + failed + " of " + tokens.size() + " sessions failed to connect");
+        }
+        return sessions;
+    }
+
+    private static long[] merge(List<Client> clients) {
+        List<long[]> recorded = new ArrayList<>();
+        int total = 0;
+        for (Client client : clients) {
+            long[] latencies = client.latencies();
+            recorded.add(latencies);
+            total += latencies.length;
+        }
+        long[] merged = new long[total];
+        int offset = 0;
+        for (long[] latencies : recorded) {
+            System.arraycopy(latencies, 0, merged, offset, latencies.length);
+            offset += latencies.length;
+        }
+        return merged;
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.max(0, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    // One user with a single request in flight; each response sends the next request
+    private static final class Client {
+        private final HttpClient http;
+        private final HttpRequest request;
+        private final long recordFrom;
+        private final long recordUntil;
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+        private volatile boolean stopped;
+
+        Client(HttpClient http, HttpRequest request, long recordFrom, long recordUntil) {
+            this.http = http;
+            this.request = request;
+            this.recordFrom = recordFrom;
+            this.recordUntil = recordUntil;
+        }
+
+        void send() {
+            long sentAt = System.nanoTime();
+            http.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, e) -> {
+                record(sentAt, System.nanoTime(), e == null && response.statusCode() == 200);
+                if (!stopped) {
+                    send();
+                }
+            });
+        }
+
+        void stop() {
+            stopped = true;
+        }
+
+        private synchronized void record(long sentAt, long now, boolean ok) {
+            if (sentAt < recordFrom || sentAt >= recordUntil) {
+                return;
+            }
+            if (!ok) {
+                errors++;
+                return;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = now - sentAt;
+        }
+
+        synchronized long[] latencies() {
+            return Arrays.copyOf(latencies, count);
+        }
+
+        synchronized long errors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.matey.chess;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoveListTest {
+    // Castling both ways, en passant on the first move, and pawns a step from promoting
+    private static final String[] FENS = {
+        Position.START_FEN,
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+        "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+        "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+    };
+
+    private final int[] buffer = new int[MoveGenerator.MAX_MOVES];
+    private int castles;
+    private int enPassants;
+    private int promotions;
+    private int underpromotions;
+
+    @Test
+    void roundTripsThroughEncodeDecodeAndReplay() {
+        for (String fen : FENS) {
+            Position position = Position.fromFen(fen);
+            MoveList moves = new MoveList();
+            play(position, moves, 150, new Random(fen.hashCode()));
+
+            MoveList decoded = MoveList.decode(moves.encode());
+            assertEquals(moves.size(), decoded.size());
+            for (int i = 0; i < moves.size(); i++) {
+                assertEquals(moves.get(i), decoded.get(i));
+            }
+            Position replayed = Position.fromFen(fen);
+            assertEquals(decoded.size(), decoded.replay(replayed, buffer));
+            assertEquals(position.toFen(), replayed.toFen());
+            assertEquals(position.key(), replayed.key());
+        }
+        assertTrue(castles > 0, "no castling played");
+        assertTrue(enPassants > 0, "no en passant played");
+        assertTrue(promotions > 0, "no promotion played");
+        assertTrue(underpromotions > 0, "no underpromotion played");
+    }
+
+    @Test
+    void storesTwoBigEndianBytesPerMove() {
+        MoveList moves = new MoveList();
+        moves.add(Move.of(Square.parse("e2"), Square.parse("e4")));
+        moves.add(Move.promotion(Square.parse("a7"), Square.parse("a8"), Piece.KNIGHT));
+
+        int first = Move.of(Square.parse("e2"), Square.parse("e4"));
+        int second = Move.packed(Move.promotion(Square.parse("a7"), Square.parse("a8"), Piece.KNIGHT));
+        assertArrayEquals(new byte[]{(byte) (first >>> 8), (byte) first, (byte) (second >>> 8), (byte) second},
+            moves.encode());
+        assertEquals(Piece.KNIGHT, Move.promotionType(moves.get(1)));
+    }
+
+    // The flag is left out of the stored move and recovered on replay
+    @Test
+    void dropsTheFlagWhenStored() {
+        Position position = Position.fromFen("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        int castle = MoveGenerator.findLegalMove(position, buffer, Square.parse("e1"), Square.parse("g1"), Piece.NONE);
+        assertEquals(Move.CASTLING, Move.flag(castle));
+
+        MoveList moves = new MoveList();
+        moves.add(castle);
+        assertEquals(Move.packed(castle), moves.get(0));
+        assertEquals(1, moves.replay(position, buffer));
+        assertEquals("r3k2r/8/8/8/8/8/8/R4RK1 b kq - 1 1", position.toFen());
+    }
+
+    @Test
+    void addAfterDecodeLeavesTheStoredBytesAlone() {
+        MoveList moves = new MoveList();
+        moves.add(Move.of(Square.parse("e2"), Square.parse("e4")));
+        moves.add(Move.of(Square.parse("e7"), Square.parse("e5")));
+        byte[] stored = moves.encode();
+        byte[] original = stored.clone();
+
+        MoveList decoded = MoveList.decode(stored);
+        decoded.add(Move.of(Square.parse("g1"), Square.parse("f3")));
+
+        assertArrayEquals(original, stored);
+        assertEquals(3, decoded.size());
+        assertEquals(Move.of(Square.parse("g1"), Square.parse("f3")), decoded.get(2));
+    }
+
+    @Test
+    void replayStopsAtTheFirstIllegalMove() {
+        MoveList moves = new MoveList();
+        moves.add(Move.of(Square.parse("e2"), Square.parse("e4")));
+        moves.add(Move.of(Square.parse("e2"), Square.parse("e4")));
+        moves.add(Move.of(Square.parse("e7"), Square.parse("e5")));
+
+        Position position = Position.startingPosition();
+        assertEquals(1, moves.replay(position, buffer));
+        assertEquals("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1", position.toFen());
+    }
+
+    @Test
+    void decodesMissingAndRejectsOddInput() {
+        assertEquals(0, MoveList.decode(null).size());
+        assertThrows(IllegalArgumentException.class, () -> MoveList.decode(new byte[3]));
+    }
+
+    // Random legal moves, but always a castle, en passant or promotion when one is on offer
+    private void play(Position position, MoveList moves, int plies, Random random) {
+        int[] legal = new int[MoveGenerator.MAX_MOVES];
+        int[] special = new int[MoveGenerator.MAX_MOVES];
+        for (int ply = 0; ply < plies; ply++) {
+            int count = MoveGenerator.generateLegal(position, legal);
+            if (count == 0) {
+                return;
+            }
+            int specials = 0;
+            for (int i = 0; i < count; i++) {
+                if (Move.flag(legal[i]) != Move.NORMAL || Move.promotionType(legal[i]) != Piece.NONE) {
+                    special[specials++] = legal[i];
+                }
+            }
+            int move = specials > 0 ? special[random.nextInt(specials)] : legal[random.nextInt(count)];
+            count(move);
+            position.makeMove(move);
+            moves.add(move);
+        }
+    }
+
+    private void count(int move) {
+        if (Move.flag(move) == Move.CASTLING) {
+            castles++;
+        } else if (Move.flag(move) == Move.EN_PASSANT) {
+            enPassants++;
+        } else if (Move.promotionType(move) != Piece.NONE) {
+            promotions++;
+            if (Move.promotionType(move) != Piece.QUEEN) {
+                underpromotions++;
+            }
+        }
+    }
+}
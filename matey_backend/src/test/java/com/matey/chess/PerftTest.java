@@ -0,0 +1,92 @@
+package com.matey.chess;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Leaf counts of the standard perft positions, which catch almost any move generation or make/unmake bug
+class PerftTest {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+    private static final String POSITION_6 = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+
+    @Test
+    void startingPosition() {
+        assertEquals(4865609, perft(Position.startingPosition(), 5));
+    }
+
+    @Test
+    void kiwipete() {
+        assertEquals(4085603, perft(Position.fromFen(KIWIPETE), 4));
+    }
+
+    @Test
+    void position3() {
+        assertEquals(674624, perft(Position.fromFen(POSITION_3), 5));
+    }
+
+    @Test
+    void position4() {
+        assertEquals(422333, perft(Position.fromFen(POSITION_4), 4));
+    }
+
+    @Test
+    void position5() {
+        assertEquals(2103487, perft(Position.fromFen(POSITION_5), 4));
+    }
+
+    @Test
+    void position6() {
+        assertEquals(3894594, perft(Position.fromFen(POSITION_6), 4));
+    }
+
+    // Every node: the incrementally updated key matches one computed from scratch, and unmake
+    // puts back both the exact FEN and the key
+    @Test
+    void unmakeRestoresFenAndKey() {
+        for (String fen : new String[]{Position.START_FEN, KIWIPETE, POSITION_3, POSITION_4, POSITION_5, POSITION_6}) {
+            checkUnmake(Position.fromFen(fen), 3);
+        }
+    }
+
+    private static long perft(Position position, int depth) {
+        return perft(position, depth, new int[depth][MoveGenerator.MAX_MOVES]);
+    }
+
+    private static long perft(Position position, int depth, int[][] buffers) {
+        int[] moves = buffers[depth - 1];
+        int count = MoveGenerator.generateLegal(position, moves);
+        if (depth == 1) {
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            nodes += perft(position, depth - 1, buffers);
+            position.unmakeMove(moves[i]);
+        }
+        return nodes;
+    }
+
+    private static void checkUnmake(Position position, int depth) {
+        if (depth == 0) {
+            return;
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generateLegal(position, moves);
+        String fen = position.toFen();
+        long key = position.key();
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            position.makeMove(move);
+            assertEquals(Position.fromFen(position.toFen()).key(), position.key(),
+                () -> "Key after " + Move.toUci(move) + " in " + fen);
+            checkUnmake(position, depth - 1);
+            position.unmakeMove(move);
+            assertEquals(fen, position.toFen(), () -> "FEN after unmaking " + Move.toUci(move));
+            assertEquals(key, position.key(), () -> "Key after unmaking " + Move.toUci(move) + " in " + fen);
+        }
+    }
+}
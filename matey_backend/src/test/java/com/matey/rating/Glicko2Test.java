@@ -0,0 +1,51 @@
+package com.matey.rating;
+
+import com.matey.model.Rating;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class Glicko2Test {
+    // The worked example from Glickman's "Example of the Glicko-2 system"
+    @Test
+    void matchesGlickmansExample() {
+        Rating player = new Rating(1500, 200, 0.06, 0, null);
+        Rating rated = Glicko2.rate(player, new double[]{1400, 1550, 1700}, new double[]{30, 100, 300},
+            new double[]{1, 0, 0}, 3);
+
+        assertEquals(1464.06, rated.getRating(), 0.01);
+        assertEquals(151.52, rated.getDeviation(), 0.01);
+        assertEquals(0.05999, rated.getVolatility(), 0.00001);
+        assertEquals(3, rated.getGames());
+    }
+
+    // Only the first count results are read
+    @Test
+    void ignoresEntriesPastCount() {
+        Rating player = new Rating(1500, 200, 0.06, 0, null);
+        Rating rated = Glicko2.rate(player, new double[]{1400, 1550, 1700, 2500}, new double[]{30, 100, 300, 50},
+            new double[]{1, 0, 0, 1}, 3);
+
+        assertEquals(1464.06, rated.getRating(), 0.01);
+    }
+
+    @Test
+    void idlePeriodsOnlyWidenTheDeviation() {
+        Rating player = new Rating(1600, 50, 0.06, 10, null);
+
+        Rating idle = Glicko2.inflate(player, 4);
+        assertEquals(1600, idle.getRating());
+        assertEquals(0.06, idle.getVolatility());
+        assertEquals(10, idle.getGames());
+        // phi^2 grows by sigma^2 per period, on the internal scale
+        double phi = 50 / 173.7178;
+        assertEquals(Math.sqrt(phi * phi + 4 * 0.06 * 0.06) * 173.7178, idle.getDeviation(), 1e-9);
+
+        assertEquals(50, Glicko2.inflate(player, 0).getDeviation());
+        // One idle period is what rating a period without games does
+        assertEquals(Glicko2.rate(player, new double[0], new double[0], new double[0], 0).getDeviation(),
+            Glicko2.inflate(player, 1).getDeviation(), 1e-9);
+        // Never wider than a new player's
+        assertEquals(Rating.DEFAULT_DEVIATION, Glicko2.inflate(player, 100000).getDeviation());
+    }
+}
@@ -0,0 +1,79 @@
+package com.matey.service;
+
+import com.matey.chess.MoveGenerator;
+import com.matey.chess.MoveList;
+import com.matey.chess.Piece;
+import com.matey.chess.Position;
+import com.matey.chess.Square;
+import com.matey.model.Game;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LiveGameRegistryTest {
+    private final int[] buffer = new int[MoveGenerator.MAX_MOVES];
+
+    @Test
+    void restoresFromMovesThatReplayToTheStoredPosition() {
+        Position position = Position.startingPosition();
+        MoveList moves = play(position, "e2e4", "e7e5", "g1f3");
+        LiveGame live = LiveGameRegistry.restore(game(moves.encode(), position.toFen()), buffer);
+
+        assertNotNull(live.moves);
+        assertEquals(3, live.moves.size());
+        assertEquals(position.toFen(), live.position.toFen());
+    }
+
+    @Test
+    void newGameKeepsAnEmptyMoveList() {
+        LiveGame live = LiveGameRegistry.restore(game(null, Position.START_FEN), buffer);
+
+        assertNotNull(live.moves);
+        assertEquals(0, live.moves.size());
+    }
+
+    // A list one move short of the stored position must not be kept, or later moves would extend it
+    @Test
+    void dropsMovesThatDoNotReachTheStoredPosition() {
+        Position position = Position.startingPosition();
+        MoveList moves = play(position, "e2e4", "e7e5");
+        play(position, "g1f3");
+        LiveGame live = LiveGameRegistry.restore(game(moves.encode(), position.toFen()), buffer);
+
+        assertNull(live.moves);
+        assertEquals(position.toFen(), live.position.toFen());
+        assertNull(live.snapshot().getMoves());
+    }
+
+    @Test
+    void dropsMissingMovesOfAGameInProgress() {
+        String fen = "rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2";
+        LiveGame live = LiveGameRegistry.restore(game(null, fen), buffer);
+
+        assertNull(live.moves);
+        assertEquals(fen, live.position.toFen());
+    }
+
+    private MoveList play(Position position, String... uciMoves) {
+        MoveList moves = new MoveList();
+        for (String uci : uciMoves) {
+            int move = MoveGenerator.findLegalMove(position, buffer,
+                Square.parse(uci.substring(0, 2)), Square.parse(uci.substring(2, 4)), Piece.NONE);
+            position.makeMove(move);
+            moves.add(move);
+        }
+        return moves;
+    }
+
+    private static Game game(byte[] moves, String fen) {
+        Game game = new Game();
+        game.setId("000000000000000000000001");
+        game.setStatus("IN_PROGRESS");
+        game.setTimeControl("5+0");
+        game.setMoves(moves);
+        game.setCurrentPosition(fen);
+        return game;
+    }
+}
@@ -0,0 +1,28 @@
+package com.matey.service;
+
+import com.matey.model.Rating;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RatingRecomputeJobTest {
+    private static final long PERIOD_IN_MS = 86400000;
+
+    @Test
+    void countsPeriodsBetweenLastRatedAndCurrent() {
+        Rating rating = new Rating();
+        // Last rated in period 10, so stamped with the start of period 11
+        rating.setUpdatedAt(Instant.ofEpochMilli(11 * PERIOD_IN_MS));
+
+        assertEquals(0, RatingRecomputeJob.idlePeriods(rating, 11, PERIOD_IN_MS));
+        assertEquals(1, RatingRecomputeJob.idlePeriods(rating, 12, PERIOD_IN_MS));
+        assertEquals(5, RatingRecomputeJob.idlePeriods(rating, 16, PERIOD_IN_MS));
+    }
+
+    @Test
+    void newRatingHasNoIdlePeriods() {
+        assertEquals(0, RatingRecomputeJob.idlePeriods(new Rating(), 42, PERIOD_IN_MS));
+    }
+}
@@ -0,0 +1,188 @@
+package com.matey.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class SessionRegistryTest {
+    private static final int USERS = 16;
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 20000;
+
+    private final SessionRegistry registry = new SessionRegistry();
+
+    @Test
+    void lastDisconnectTakesUserOffline() {
+        assertTrue(registry.connect("s1", "u1", "alice"));
+        assertFalse(registry.connect("s2", "u1", "alice"));
+        assertFalse(registry.connect("s2", "u1", "alice"));
+        assertTrue(registry.setInGame("u1", true));
+        assertFalse(registry.setInGame("u1", true));
+
+        assertNull(registry.disconnect("s1"));
+        assertTrue(registry.get("u1").inGame);
+        assertEquals("u1", registry.disconnect("s2"));
+        assertNull(registry.disconnect("s2"));
+        assertNull(registry.get("u1"));
+        assertFalse(registry.setInGame("u1", false));
+        assertEquals(0, registry.sessionCount());
+    }
+
+    @Test
+    void removeDropsEverySession() {
+        registry.connect("s1", "u1", "alice");
+        registry.connect("s2", "u1", "alice");
+        assertTrue(registry.remove("u1"));
+        assertFalse(registry.remove("u1"));
+        assertNull(registry.disconnect("s1"));
+        assertEquals(0, registry.size());
+        assertEquals(0, registry.sessionCount());
+    }
+
+    // Many threads connecting and disconnecting tabs of the same few users: each user must come
+    // online and go offline exactly as often as their sessions say, and no session may be lost
+    @Test
+    void concurrentChurnKeepsCountsConsistent() throws InterruptedException {
+        AtomicInteger[] online = new AtomicInteger[USERS];
+        for (int i = 0; i < USERS; i++) {
+            online[i] = new AtomicInteger();
+        }
+        KeptSessions kept = new KeptSessions();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    churn(thread, online, kept);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            fail("Churn thread failed", failure.get());
+        }
+
+        // Whatever is left connected must be exactly what the registry holds
+        int onlineUsers = 0;
+        for (int u = 0; u < USERS; u++) {
+            Set<String> sessions = kept.sessionsOf(u);
+            SessionRegistry.State state = registry.get(userId(u));
+            if (sessions.isEmpty()) {
+                assertNull(state, userId(u));
+                assertEquals(0, online[u].get(), userId(u));
+            } else {
+                assertNotNull(state, userId(u));
+                assertEquals(sessions, Set.of(state.sessions), userId(u));
+                assertEquals(1, online[u].get(), userId(u));
+                onlineUsers++;
+            }
+        }
+        assertEquals(onlineUsers, registry.size());
+        assertEquals(kept.size(), registry.sessionCount());
+
+        // Then disconnect the rest from many threads at once
+        List<Thread> closers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            closers.add(new Thread(() -> {
+                Session session;
+                while ((session = kept.poll()) != null) {
+                    if (registry.disconnect(session.id()) != null) {
+                        online[session.user()].decrementAndGet();
+                    }
+                }
+            }));
+        }
+        closers.forEach(Thread::start);
+        for (Thread closer : closers) {
+            closer.join();
+        }
+        for (int u = 0; u < USERS; u++) {
+            assertEquals(0, online[u].get(), userId(u));
+        }
+        assertEquals(0, registry.size());
+        assertEquals(0, registry.sessionCount());
+    }
+
+    private void churn(int thread, AtomicInteger[] online, KeptSessions kept) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Session> open = new ArrayList<>();
+        for (int i = 0; i < ITERATIONS; i++) {
+            int user = random.nextInt(USERS);
+            Session session = new Session("t" + thread + "-" + i, user);
+            if (registry.connect(session.id(), userId(user), "user" + user)) {
+                online[user].incrementAndGet();
+            }
+            registry.setInGame(userId(random.nextInt(USERS)), random.nextBoolean());
+            open.add(session);
+            // Close a random open tab about as often as one is opened, leaving a few behind
+            if (random.nextInt(10) < 9) {
+                Session closing = open.remove(random.nextInt(open.size()));
+                String offline = registry.disconnect(closing.id());
+                if (offline != null) {
+                    assertEquals(userId(closing.user()), offline);
+                    online[closing.user()].decrementAndGet();
+                }
+            }
+        }
+        open.forEach(kept::add);
+    }
+
+    private static String userId(int user) {
+        return "u" + user;
+    }
+
+    private record Session(String id, int user) {
+    }
+
+    // Sessions left open by the churn threads, drained by the closers
+    private static final class KeptSessions {
+        private final Queue<Session> sessions = new ConcurrentLinkedQueue<>();
+
+        void add(Session session) {
+            sessions.add(session);
+        }
+
+        Session poll() {
+            return sessions.poll();
+        }
+
+        int size() {
+            return sessions.size();
+        }
+
+        Set<String> sessionsOf(int user) {
+            Set<String> ids = new HashSet<>();
+            for (Session session : sessions) {
+                if (session.user() == user) {
+                    ids.add(session.id());
+                }
+            }
+            return ids;
+        }
+    }
+}
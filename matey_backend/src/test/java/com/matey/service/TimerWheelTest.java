@@ -0,0 +1,104 @@
+package com.matey.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+    private static final long START = 1_000_000;
+    private static final long TICK = 10;
+    // Eight buckets, so one revolution is 80 ms
+    private static final int SIZE = 8;
+
+    private final AtomicLong now = new AtomicLong(START);
+    private final List<String> fired = new ArrayList<>();
+    private TimerWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new TimerWheel(now::get, TICK, SIZE);
+        wheel.init();
+    }
+
+    @Test
+    void firesOnTheFirstTickAtOrAfterTheDeadline() {
+        schedule("a", 25);
+        advanceTo(29);
+        assertTrue(fired.isEmpty());
+        advanceTo(30);
+        assertEquals(List.of("a"), fired);
+    }
+
+    @Test
+    void waitsOutEveryRevolutionBeforeTheDeadline() {
+        // Tick 20 shares a bucket with ticks 4 and 12, which must pass it by
+        schedule("far", 195);
+        for (long at = TICK; at < 200; at += TICK) {
+            advanceTo(at);
+            assertTrue(fired.isEmpty(), "fired early at " + at);
+        }
+        advanceTo(200);
+        assertEquals(List.of("far"), fired);
+    }
+
+    @Test
+    void lateTickCatchesUpOnEveryBucket() {
+        schedule("a", 15);
+        schedule("b", 170);
+        schedule("c", 405);
+        schedule("d", 1005);
+        advanceTo(1000);
+        assertEquals(List.of("a", "b", "c"), fired);
+        advanceTo(1009);
+        assertEquals(3, fired.size());
+        advanceTo(1010);
+        assertEquals(List.of("a", "b", "c", "d"), fired);
+    }
+
+    @Test
+    void pastDeadlineFiresOnTheNextTick() {
+        advanceTo(100);
+        schedule("late", 50);
+        advanceTo(109);
+        assertTrue(fired.isEmpty());
+        advanceTo(110);
+        assertEquals(List.of("late"), fired);
+    }
+
+    @Test
+    void cancelledTimeoutsNeverFire() {
+        // One cancelled before the wheel places it, one after
+        schedule("before", 30).cancel();
+        TimerWheel.Timeout after = schedule("after", 190);
+        advanceTo(10);
+        after.cancel();
+        schedule("kept", 190);
+        advanceTo(300);
+        assertEquals(List.of("kept"), fired);
+    }
+
+    @Test
+    void failingTimeoutDoesNotStopTheOthers() {
+        wheel.schedule(START + 20, () -> {
+            throw new IllegalStateException("boom");
+        });
+        schedule("a", 20);
+        advanceTo(20);
+        assertEquals(List.of("a"), fired);
+    }
+
+    private TimerWheel.Timeout schedule(String name, long deadline) {
+        return wheel.schedule(START + deadline, () -> fired.add(name));
+    }
+
+    private void advanceTo(long at) {
+        now.set(START + at);
+        wheel.advance();
+    }
+}
@@ -3,7 +3,14 @@ import { UserOutlined } from '@ant-design/icons';
 
 const { Text } = Typography;
 
-const PlayerInfo = ({ username, isActive, isTop = false }) => {
+const formatClock = (ms) => {
+  const totalSeconds = Math.ceil(ms / 1000);
+  const minutes = Math.floor(totalSeconds / 60);
+  const seconds = String(totalSeconds % 60).padStart(2, '0');
+  return `${minutes}:${seconds}`;
+};
+
+const PlayerInfo = ({ username, isActive, clockMs = null, isTop = false }) => {
   return (
     <div style={{ 
       padding: '16px 24px',
@@ -50,6 +57,16 @@ const PlayerInfo = ({ username, isActive, isTop = false }) => {
           {isActive ? 'Your turn' : 'Waiting...'}
         </Text>
       </div>
+      {clockMs != null && (
+        <Text style={{
+          fontFamily: 'monospace',
+          fontSize: '20px',
+          color: isActive ? 'rgba(255, 255, 255, 0.85)' : 'rgba(255, 255, 255, 0.45)',
+          transform: isTop ? 'rotate(180deg)' : 'none'
+        }}>
+          {formatClock(clockMs)}
+        </Text>
+      )}
       <div style={{
         width: '10px',
         height: '10px',
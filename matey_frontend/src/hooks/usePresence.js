@@ -0,0 +1,86 @@
+import { useEffect, useState } from 'react';
+
+// Online friends keyed by userId, kept in sync from versioned presence frames.
+// A snapshot is loaded first; frames arriving meanwhile are buffered and only
+// those newer than the snapshot are applied. A gap in versions triggers a resync.
+export const usePresence = (stompClient) => {
+  const [players, setPlayers] = useState(new Map());
+
+  useEffect(() => {
+    if (!stompClient?.connected) {
+      return;
+    }
+
+    let current = new Map();
+    let version = null;
+    let buffered = [];
+    let snapshotSubscription = null;
+
+    const applyFrame = (frame) => {
+      if (frame.version <= version) {
+        return true;
+      }
+      if (frame.version !== version + 1) {
+        return false;
+      }
+      frame.events.forEach(event => {
+        if (event.type === 'LEFT') {
+          current.delete(event.userId);
+        } else {
+          current.set(event.userId, {
+            userId: event.userId,
+            username: event.username,
+            inGame: event.inGame
+          });
+        }
+      });
+      version = frame.version;
+      return true;
+    };
+
+    const resync = () => {
+      version = null;
+      buffered = [];
+      snapshotSubscription?.unsubscribe();
+      snapshotSubscription = stompClient.subscribe('/app/online-users/get', (message) => {
+        try {
+          const snapshot = JSON.parse(message.body);
+          current = new Map(snapshot.players.map(player => [player.userId, player]));
+          version = snapshot.version;
+          const pending = buffered;
+          buffered = [];
+          if (!pending.every(applyFrame)) {
+            resync();
+            return;
+          }
+          setPlayers(new Map(current));
+        } catch (error) {
+          console.error('Failed to parse presence snapshot:', error);
+        }
+      });
+    };
+
+    const presenceSubscription = stompClient.subscribe('/user/queue/presence', (message) => {
+      try {
+        const frame = JSON.parse(message.body);
+        if (version === null) {
+          buffered.push(frame);
+        } else if (applyFrame(frame)) {
+          setPlayers(new Map(current));
+        } else {
+          resync();
+        }
+      } catch (error) {
+        console.error('Failed to parse presence frame:', error);
+      }
+    });
+    resync();
+
+    return () => {
+      presenceSubscription.unsubscribe();
+      snapshotSubscription?.unsubscribe();
+    };
+  }, [stompClient]);
+
+  return players;
+};
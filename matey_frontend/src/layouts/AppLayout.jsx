@@ -39,10 +39,8 @@ const AppLayout = () => {
     const client = new Client({
       brokerURL: 'ws://localhost:8080/ws',
       connectHeaders: {
-        login: 'guest',
-        passcode: 'guest',
-        userId: user.id,
-        username: user.username
+        // The server checks the token once here and binds the session to its user
+        Authorization: `Bearer ${localStorage.getItem('token')}`
       },
       debug: function (str) {
         console.log('STOMP: ' + str);
@@ -60,10 +58,7 @@ const AppLayout = () => {
         // Initial connection - only send from AppLayout
         client.publish({
           destination: '/app/player/connect',
-          body: JSON.stringify({ 
-            userId: user.id, 
-            username: user.username 
-          })
+          body: JSON.stringify({})
         });
       },
       onDisconnect: () => {
@@ -86,7 +81,7 @@ const AppLayout = () => {
       if (client.connected) {
         client.publish({
           destination: '/app/player/disconnect',
-          body: JSON.stringify({ userId: user.id })
+          body: JSON.stringify({})
         });
         client.deactivate();
       }
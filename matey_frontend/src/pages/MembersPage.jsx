@@ -1,4 +1,4 @@
-import { useState, useEffect } from 'react';
+import { useState, useEffect, useRef } from 'react';
 import { 
   Typography, 
   List, 
@@ -20,6 +20,7 @@ import {
 import axios from 'axios';
 import { useAuth } from '../contexts/AuthContext';
 import { useOutletContext } from 'react-router-dom';
+import { usePresence } from '../hooks/usePresence';
 
 const { Title, Text } = Typography;
 const { Search } = Input;
@@ -33,67 +34,65 @@ const MembersPage = () => {
   const { stompClient } = useOutletContext();
   const [members, setMembers] = useState([]);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
+  // Cursor for the next page; null once the last page has been loaded
+  const [nextCursor, setNextCursor] = useState(null);
   const [searchText, setSearchText] = useState('');
+  // Prefix matches from the server; null while no search is active
+  const [searchResults, setSearchResults] = useState(null);
+  const latestSearch = useRef('');
   const [pendingRequests, setPendingRequests] = useState(new Set());
-  const [onlineUsers, setOnlineUsers] = useState(new Set());
+  // Online friends keyed by userId
+  const onlineUsers = usePresence(stompClient);
 
   useEffect(() => {
     fetchMembers();
+  }, [user.id]);
 
-    // Subscribe to online users updates
-    if (stompClient) {
-      console.log('Subscribing to online users updates');
-      
-      const subscription = stompClient.subscribe('/topic/online-players', (message) => {
-        try {
-          const onlinePlayers = JSON.parse(message.body);
-          console.log('Received online players:', onlinePlayers);
-          // Create a Set of online user IDs
-          const onlineIds = new Set(onlinePlayers.map(player => player.userId));
-          setOnlineUsers(onlineIds);
-        } catch (error) {
-          console.error('Failed to parse online players:', error);
-        }
-      });
-
-      // Request current online users
-      stompClient.publish({
-        destination: '/app/online-users/get',
-        body: JSON.stringify({ userId: user.id })
-      });
-
-      return () => {
-        console.log('Unsubscribing from online users updates');
-        subscription.unsubscribe();
-      };
+  const fetchPage = (after) => axios.get('/api/users/members', {
+    params: after ? { after } : {},
+    headers: {
+      'Authorization': `Bearer ${localStorage.getItem('token')}`
     }
-  }, [stompClient, user.id]);
+  });
 
   const fetchMembers = async () => {
     setLoading(true);
     try {
-      const response = await axios.get('/api/users/members', {
-        headers: {
-          'Authorization': `Bearer ${localStorage.getItem('token')}`
-        }
-      });
-      if (response.data && Array.isArray(response.data)) {
-        console.log('Members loaded:', response.data);
-        setMembers(response.data);
+      const response = await fetchPage(null);
+      if (response.data && Array.isArray(response.data.items)) {
+        setMembers(response.data.items);
+        setNextCursor(response.data.nextCursor);
       } else {
         console.error('Invalid response format:', response.data);
         setMembers([]);
+        setNextCursor(null);
         messageApi.error('Invalid response from server');
       }
     } catch (error) {
       console.error('Failed to load members:', error);
       setMembers([]);
+      setNextCursor(null);
       messageApi.error('Failed to load members');
     } finally {
       setLoading(false);
     }
   };
 
+  const fetchMoreMembers = async () => {
+    setLoadingMore(true);
+    try {
+      const response = await fetchPage(nextCursor);
+      setMembers(prev => [...prev, ...response.data.items]);
+      setNextCursor(response.data.nextCursor);
+    } catch (error) {
+      console.error('Failed to load more members:', error);
+      messageApi.error('Failed to load more members');
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   const handleSendFriendRequest = async (userId) => {
     try {
       setPendingRequests(prev => new Set(prev).add(userId));
@@ -114,10 +113,31 @@ const MembersPage = () => {
     }
   };
 
-  const filteredMembers = members.filter(member => 
-    member.username.toLowerCase().includes(searchText.toLowerCase()) ||
-    member.email.toLowerCase().includes(searchText.toLowerCase())
-  );
+  const handleSearch = async (text) => {
+    setSearchText(text);
+    const query = text.trim();
+    latestSearch.current = query;
+    if (!query) {
+      setSearchResults(null);
+      return;
+    }
+    try {
+      const response = await axios.get('/api/users/search', {
+        params: { q: query },
+        headers: {
+          'Authorization': `Bearer ${localStorage.getItem('token')}`
+        }
+      });
+      // Drop responses that arrive after the user has typed on
+      if (latestSearch.current === query) {
+        setSearchResults(response.data);
+      }
+    } catch (error) {
+      console.error('Failed to search members:', error);
+    }
+  };
+
+  const filteredMembers = searchResults ?? members;
 
   const renderMemberCard = (member) => {
     const isOnline = onlineUsers.has(member.id);
@@ -224,9 +244,9 @@ const MembersPage = () => {
             Members {members.length > 0 && `(${members.length})`}
           </Title>
           <Search
-            placeholder="Search by username or email"
+            placeholder="Search by username"
             allowClear
-            onChange={(e) => setSearchText(e.target.value)}
+            onChange={(e) => handleSearch(e.target.value)}
             style={{ 
               width: '300px',
               maxWidth: '100%'
@@ -242,6 +262,11 @@ const MembersPage = () => {
         ) : filteredMembers.length > 0 ? (
           <div>
             {filteredMembers.map(renderMemberCard)}
+            {nextCursor && searchResults === null && (
+              <Button block onClick={fetchMoreMembers} loading={loadingMore}>
+                Load more
+              </Button>
+            )}
           </div>
         ) : (
           <div style={{ 
@@ -1,9 +1,10 @@
-import { useEffect, useState, useCallback } from 'react';
+import { useEffect, useState, useCallback, useMemo } from 'react';
 import { Button, App, Typography } from 'antd';
 import { useOutletContext } from 'react-router-dom';
 import { useAuth } from '../contexts/AuthContext';
 import ChessBoard from '../components/ChessBoard';
 import PlayerInfo from '../components/PlayerInfo';
+import { usePresence } from '../hooks/usePresence';
 import { LoadingOutlined, UserOutlined } from '@ant-design/icons';
 
 const { Text } = Typography;
@@ -16,7 +17,8 @@ const PlayPage = () => {
   const { user } = useAuth();
   const { stompClient } = useOutletContext();
   const [isSearching, setIsSearching] = useState(false);
-  const [onlinePlayers, setOnlinePlayers] = useState([]);
+  const presence = usePresence(stompClient);
+  const onlinePlayers = useMemo(() => Array.from(presence.values()), [presence]);
   const [isMobile, setIsMobile] = useState(window.innerWidth <= MOBILE_BREAKPOINT);
   const [showGameStart, setShowGameStart] = useState(false);
   const [gameState, setGameState] = useState({
@@ -24,8 +26,21 @@ const PlayPage = () => {
     isInGame: false,
     isPlayerTurn: false,
     opponentMove: null,
-    opponent: null
+    opponent: null,
+    isWhite: true,
+    // Server clock values and when they were received; the side to move counts down from there
+    whiteClockMs: null,
+    blackClockMs: null,
+    clockSyncedAt: null
   });
+  const [now, setNow] = useState(Date.now());
+
+  // Re-render a few times a second while clocks are running
+  useEffect(() => {
+    if (!gameState.isInGame) return;
+    const interval = setInterval(() => setNow(Date.now()), 250);
+    return () => clearInterval(interval);
+  }, [gameState.isInGame]);
 
   // Handle window resize
   useEffect(() => {
@@ -48,7 +63,11 @@ const PlayPage = () => {
           isInGame: true,
           isPlayerTurn: update.isWhite,
           opponent: update.opponent,
-          opponentMove: null
+          opponentMove: null,
+          isWhite: update.isWhite,
+          whiteClockMs: update.whiteClockMs,
+          blackClockMs: update.blackClockMs,
+          clockSyncedAt: Date.now()
         }));
         setShowGameStart(true);
         message.success(`Game started against ${update.opponent}! You are playing as ${update.isWhite ? 'White' : 'Black'}.`);
@@ -58,7 +77,18 @@ const PlayPage = () => {
         setGameState(prev => ({
           ...prev,
           isPlayerTurn: true,
-          opponentMove: update.move
+          opponentMove: update.move,
+          whiteClockMs: update.whiteClockMs,
+          blackClockMs: update.blackClockMs,
+          clockSyncedAt: Date.now()
+        }));
+        break;
+      case 'CLOCK_UPDATED':
+        setGameState(prev => ({
+          ...prev,
+          whiteClockMs: update.whiteClockMs,
+          blackClockMs: update.blackClockMs,
+          clockSyncedAt: Date.now()
         }));
         break;
       case 'GAME_ENDED':
@@ -71,7 +101,10 @@ const PlayPage = () => {
           isInGame: false,
           isPlayerTurn: false,
           opponent: null,
-          opponentMove: null
+          opponentMove: null,
+          whiteClockMs: null,
+          blackClockMs: null,
+          clockSyncedAt: null
         }));
         message.info(`Game ended: ${update.reason}`);
         break;
@@ -85,10 +118,10 @@ const PlayPage = () => {
     if (stompClient?.connected) {
       console.log('Setting up game subscriptions for user:', user.id);
       
-      // Subscribe to game updates and online players
+      // Subscribe to game updates
       const subscriptions = [
         // Game updates subscription
-        stompClient.subscribe(`/user/${user.id}/queue/game-updates`, (messageData) => {
+        stompClient.subscribe('/user/queue/game-updates', (messageData) => {
           try {
             const update = JSON.parse(messageData.body);
             console.log('Received game update:', update);
@@ -96,26 +129,9 @@ const PlayPage = () => {
           } catch (error) {
             console.error('Failed to parse game update:', error);
           }
-        }),
-
-        // Online players subscription
-        stompClient.subscribe('/topic/online-players', (messageData) => {
-          try {
-            const players = JSON.parse(messageData.body);
-            console.log('Received online players update:', players);
-            setOnlinePlayers(players.filter(p => p.userId !== user.id));
-          } catch (error) {
-            console.error('Failed to parse online players:', error);
-          }
         })
       ];
 
-      // Request initial online players list
-      stompClient.publish({
-        destination: '/app/online-users/get',
-        body: JSON.stringify({ userId: user.id })
-      });
-
       return () => {
         console.log('Cleaning up game subscriptions');
         subscriptions.forEach(sub => sub.unsubscribe());
@@ -123,13 +139,21 @@ const PlayPage = () => {
     }
   }, [stompClient, user.id, handleGameUpdate]);
 
+  // Time shown for one side, counting down only while it is that side's turn
+  const clockFor = (isWhiteSide) => {
+    const clock = isWhiteSide ? gameState.whiteClockMs : gameState.blackClockMs;
+    if (clock == null) return null;
+    const running = gameState.isInGame && (gameState.isPlayerTurn === (isWhiteSide === gameState.isWhite));
+    return Math.max(0, running ? clock - (now - gameState.clockSyncedAt) : clock);
+  };
+
   const findGame = useCallback(() => {
     if (stompClient?.connected) {
       setIsSearching(true);
       console.log('Finding game for user:', user.id);
       stompClient.publish({
         destination: '/app/game/find',
-        body: JSON.stringify({ userId: user.id })
+        body: JSON.stringify({})
       });
       message.loading('Finding a game...', 0);
     } else {
@@ -142,7 +166,7 @@ const PlayPage = () => {
       console.log('Canceling game search for user:', user.id);
       stompClient.publish({
         destination: '/app/game/cancel',
-        body: JSON.stringify({ userId: user.id })
+        body: JSON.stringify({})
       });
       setIsSearching(false);
       message.destroy();
@@ -156,7 +180,6 @@ const PlayPage = () => {
         destination: '/app/game/move',
         body: JSON.stringify({
           gameId: gameState.gameId,
-          playerId: user.id,
           move: move
         })
       });
@@ -166,15 +189,14 @@ const PlayPage = () => {
         opponentMove: null
       }));
     }
-  }, [stompClient, gameState.gameId, user.id]);
+  }, [stompClient, gameState.gameId]);
 
   const handleResign = useCallback(() => {
     if (stompClient?.connected && gameState.gameId) {
       stompClient.publish({
         destination: '/app/game/resign',
         body: JSON.stringify({ 
-          gameId: gameState.gameId,
-          playerId: user.id 
+          gameId: gameState.gameId
         })
       });
       message.info('You resigned the game');
@@ -186,7 +208,18 @@ const PlayPage = () => {
         opponentMove: null
       });
     }
-  }, [stompClient, gameState.gameId, user.id, message]);
+  }, [stompClient, gameState.gameId, message]);
+
+  const handleClaimDraw = useCallback(() => {
+    if (stompClient?.connected && gameState.gameId) {
+      stompClient.publish({
+        destination: '/app/game/claim-draw',
+        body: JSON.stringify({
+          gameId: gameState.gameId
+        })
+      });
+    }
+  }, [stompClient, gameState.gameId]);
 
   const Controls = () => (
     <>
@@ -206,20 +239,32 @@ const PlayPage = () => {
         {isSearching ? 'Cancel Search' : 'Play'}
       </Button>
 
+      {gameState.isInGame && (
+        <Button 
+          size="large"
+          onClick={handleClaimDraw}
+          style={{ 
+            marginTop: isMobile ? 0 : 'auto'
+          }}
+        >
+          Claim Draw
+        </Button>
+      )}
+
       {gameState.isInGame && (
         <Button 
           danger 
           size="large"
           onClick={handleResign}
           style={{ 
-            marginTop: isMobile ? 0 : 'auto'
+            marginTop: isMobile ? 0 : 8
           }}
         >
           Resign
         </Button>
       )}
 
-      {/* Online Players List */}
+      {/* Online Friends List */}
       {!isMobile && (
         <div style={{
           marginTop: '24px',
@@ -232,7 +277,7 @@ const PlayPage = () => {
             fontSize: '14px',
             fontWeight: 500
           }}>
-            Online Players ({onlinePlayers.length})
+            Online Friends ({onlinePlayers.length})
           </Text>
           
           <div style={{
@@ -344,6 +389,7 @@ const PlayPage = () => {
             <PlayerInfo
               username={gameState.opponent || 'Opponent'}
               isActive={gameState.isInGame && !gameState.isPlayerTurn}
+              clockMs={clockFor(!gameState.isWhite)}
               isTop
             />
 
@@ -386,6 +432,7 @@ const PlayPage = () => {
             <PlayerInfo
               username={user.username}
               isActive={gameState.isInGame && gameState.isPlayerTurn}
+              clockMs={clockFor(gameState.isWhite)}
             />
           </div>
         </div>